@@ -0,0 +1,75 @@
+package org.javastack.crc.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.javastack.crc.CRC;
+import org.javastack.crc.CRC16_XMODEM;
+import org.javastack.crc.CRC32;
+import org.javastack.crc.CRC32C;
+import org.javastack.crc.CRC64;
+import org.javastack.crc.CRC8_DVB_S2;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * CRCs implemented as classes (class-table and class-calculated).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClassBenchmark {
+	@Param({ "CRC32", "CRC32C", "CRC64", "CRC16_XMODEM", "CRC8_DVB_S2" })
+	public String impl;
+
+	private CRC crc;
+
+	@Setup
+	public void setup() {
+		switch (impl) {
+			case "CRC32":
+				crc = new CRC32();
+				break;
+			case "CRC32C":
+				crc = new CRC32C();
+				break;
+			case "CRC64":
+				crc = new CRC64();
+				break;
+			case "CRC16_XMODEM":
+				crc = new CRC16_XMODEM();
+				break;
+			case "CRC8_DVB_S2":
+				crc = new CRC8_DVB_S2();
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown impl: " + impl);
+		}
+	}
+
+	@Benchmark
+	public long array(final InputState in) {
+		crc.reset();
+		crc.update(in.array, 0, in.array.length);
+		return crc.getValue();
+	}
+
+	@Benchmark
+	public long buffer(final InputState in) {
+		in.buffer.clear();
+		crc.reset();
+		crc.update(in.buffer);
+		return crc.getValue();
+	}
+}
@@ -0,0 +1,38 @@
+package org.javastack.crc.benchmark;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Random input of the benchmarks, in heap or direct memory
+ * <p>
+ * Default sizes are small, medium and large, widen with <code>-p size=1,16,256,4096,65536,1048576,16777216</code>
+ */
+@State(Scope.Thread)
+public class InputState {
+	@Param({ "16", "4096", "1048576" })
+	public int size;
+
+	@Param({ "heap", "direct" })
+	public String input;
+
+	public byte[] array;
+	public ByteBuffer buffer;
+
+	@Setup
+	public void setup() {
+		array = new byte[size];
+		new Random(42).nextBytes(array);
+		if ("direct".equals(input)) {
+			buffer = ByteBuffer.allocateDirect(size);
+			buffer.put(array).flip();
+		} else {
+			buffer = ByteBuffer.wrap(array);
+		}
+	}
+}
@@ -0,0 +1,60 @@
+package org.javastack.crc.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.javastack.crc.CRC;
+import org.javastack.crc.Engine;
+import org.javastack.crc.Preset;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Generic engines ({@link Engine}) for a representative subset of {@link Preset} (8/16/32/64 bits, normal and
+ * reflected, with and without intrinsic).
+ * <p>
+ * Narrow or widen with <code>-p preset=CRC_32_ISCSI,CRC_16_ARC -p engine=TABLE</code> (any preset name)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PresetBenchmark {
+	@Param({ "CRC_8_SMBUS", "CRC_16_XMODEM", "CRC_32_ISO_HDLC", "CRC_32_ISCSI", "CRC_64_XZ" })
+	public Preset preset;
+
+	@Param
+	public Engine engine;
+
+	private CRC crc;
+
+	@Setup
+	public void setup() {
+		crc = preset.getInstance(engine);
+	}
+
+	@Benchmark
+	public long array(final InputState in) {
+		crc.reset();
+		crc.update(in.array, 0, in.array.length);
+		return crc.getValue();
+	}
+
+	@Benchmark
+	public long buffer(final InputState in) {
+		in.buffer.clear();
+		crc.reset();
+		crc.update(in.buffer);
+		return crc.getValue();
+	}
+}
@@ -0,0 +1,522 @@
+package org.javastack.crc;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.InvalidParameterException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Sidecar index with the CRC of each fixed-size block of a file, and the whole-file CRC (derived from blocks with
+ * {@link CRC#combine(Params, long, long, long)}, without a second pass). Verification localizes corruption to
+ * the damaged blocks, and can be done by ranges of blocks for incremental scrubbing.
+ * <p>
+ * Size and mtime of file are tracked: {@link #refresh(Path, Path)} does nothing if they are unchanged, and assumes
+ * append-only growth (like logs): if the file grew, only the last partial block and new blocks are computed and
+ * appended to the index (the last kept block is verified, and if it changed all blocks are rehashed). Regions
+ * modified in place can be given as a hint with {@link #refresh(Path, Path, long, long)} to compute only their
+ * blocks.
+ * <p>
+ * Binary format (big-endian), written with streaming I/O and appendable:
+ *
+ * <pre>
+ * header:  magic "CRCI"(4) | version(1) | width(1) | algorithm-hash(4) | block-size(4)
+ * blocks:  crc(width/8) ...
+ * trailer: size(8) | mtime(8) | crc(8) | magic "CRCE"(4)
+ * </pre>
+ *
+ * @see FileCRC
+ */
+public class BlockCRCIndex {
+	/**
+	 * Default block size (1MB)
+	 */
+	public static final int DEFAULT_BLOCK_SIZE = (1 << 20);
+	/**
+	 * Extension of sidecar index file
+	 */
+	public static final String EXTENSION = ".crcidx";
+
+	private static final int MAGIC = 0x43524349; // CRCI
+	private static final int MAGIC_END = 0x43524345; // CRCE
+	private static final int VERSION = 2;
+	private static final int HEADER_SIZE = 14;
+	private static final int TRAILER_SIZE = 28;
+	private static final Engine ENGINE = Engine.AUTO;
+
+	private final Params p;
+	private final int blockSize;
+	private final int crcBytes;
+	/**
+	 * x^(8*blockSize) modulo poly, to combine a full block in one multiplication
+	 */
+	private final long blockPower;
+	private long size;
+	private long mtime;
+	private long value;
+	private long[] crcs;
+
+	private BlockCRCIndex(final Params p, final int blockSize) {
+		if (blockSize <= 0) {
+			throw new InvalidParameterException("Invalid blockSize: " + blockSize);
+		}
+		this.p = p;
+		this.blockSize = blockSize;
+		this.crcBytes = ((p.width + 7) >>> 3);
+		this.blockPower = CRC.shift(p, 1, blockSize);
+	}
+
+	/**
+	 * Return path of sidecar index for a file (same directory, with {@link #EXTENSION})
+	 *
+	 * @param file data file
+	 * @return index file
+	 */
+	public static Path sidecar(final Path file) {
+		return file.resolveSibling(file.getFileName() + EXTENSION);
+	}
+
+	/**
+	 * Compute index of a file
+	 *
+	 * @param p params of CRC
+	 * @param file data file
+	 * @param blockSize size of blocks in bytes
+	 * @return index
+	 * @throws IOException if error reading file
+	 */
+	public static BlockCRCIndex build(final Params p, final Path file, final int blockSize) throws IOException {
+		final BlockCRCIndex index = new BlockCRCIndex(p, blockSize);
+		index.mtime = mtime(file);
+		try (FileChannel fc = FileChannel.open(file, StandardOpenOption.READ)) {
+			index.size = fc.size();
+			index.crcs = index.computeBlocks(fc, 0, index.blocks(index.size));
+		}
+		index.value = index.combineBlocks(0, index.crcs.length, index.emptyValue());
+		return index;
+	}
+
+	/**
+	 * Load index from sidecar file
+	 *
+	 * @param p params of CRC
+	 * @param indexFile sidecar index
+	 * @return index
+	 * @throws IOException if error reading or invalid index
+	 */
+	public static BlockCRCIndex load(final Params p, final Path indexFile) throws IOException {
+		final long length = Files.size(indexFile);
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(Files.newInputStream(indexFile)))) {
+			if ((in.readInt() != MAGIC) || (in.readUnsignedByte() != VERSION)) {
+				throw new IOException("Invalid index: " + indexFile);
+			}
+			if ((in.readUnsignedByte() != p.width) || (in.readInt() != p.algorithmHash())) {
+				throw new IOException("Invalid index params, expected: " + p.name);
+			}
+			final BlockCRCIndex index = new BlockCRCIndex(p, in.readInt());
+			final long count = (length - HEADER_SIZE - TRAILER_SIZE) / index.crcBytes;
+			if ((count < 0) || (count > Integer.MAX_VALUE)
+					|| (HEADER_SIZE + (count * index.crcBytes) + TRAILER_SIZE != length)) {
+				throw new IOException("Invalid index size: " + indexFile);
+			}
+			index.crcs = new long[(int) count];
+			for (int i = 0; i < index.crcs.length; i++) {
+				index.crcs[i] = index.readCRC(in);
+			}
+			index.size = in.readLong();
+			index.mtime = in.readLong();
+			index.value = in.readLong();
+			if ((in.readInt() != MAGIC_END) || (index.blocks(index.size) != count)) {
+				throw new IOException("Invalid index trailer: " + indexFile);
+			}
+			return index;
+		}
+	}
+
+	/**
+	 * Write index to sidecar file (replacing it)
+	 *
+	 * @param indexFile sidecar index
+	 * @throws IOException if error writing
+	 */
+	public void save(final Path indexFile) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexFile)))) {
+			out.writeInt(MAGIC);
+			out.writeByte(VERSION);
+			out.writeByte(p.width);
+			out.writeInt(p.algorithmHash());
+			out.writeInt(blockSize);
+			writeBlocks(out, 0);
+		}
+	}
+
+	/**
+	 * Refresh index if file changed (size or mtime) and write changes to sidecar file. Growth is assumed append-only:
+	 * if file grew, existing full blocks are kept (last one is verified) and only the last partial block and new
+	 * blocks are computed. If the last kept block changed, or file was rewritten or truncated, all blocks are
+	 * rehashed (no per-block mtime exists to locate changes); in every case the sidecar file is only rewritten from
+	 * the first changed block.
+	 *
+	 * @param file data file
+	 * @param indexFile sidecar index (previously saved from this index)
+	 * @return true if index changed
+	 * @throws IOException if error reading or writing
+	 * @see #refresh(Path, Path, long, long)
+	 */
+	public boolean refresh(final Path file, final Path indexFile) throws IOException {
+		return refresh(file, indexFile, -1, 0);
+	}
+
+	/**
+	 * Refresh index with a hint of the region modified in place (like from a write journal): only blocks that
+	 * overlap the region, the last partial block and new blocks are computed, other blocks are assumed unchanged.
+	 *
+	 * @param file data file
+	 * @param indexFile sidecar index (previously saved from this index)
+	 * @param offset of modified region in bytes (-1 if unknown, like {@link #refresh(Path, Path)})
+	 * @param length of modified region in bytes
+	 * @return true if index changed
+	 * @throws IOException if error reading or writing
+	 */
+	public boolean refresh(final Path file, final Path indexFile, final long offset, final long length)
+			throws IOException {
+		final boolean hint = (offset >= 0);
+		if (hint && (length < 0)) {
+			throw new InvalidParameterException("Invalid length: " + length);
+		}
+		final long newMtime = mtime(file);
+		try (FileChannel fc = FileChannel.open(file, StandardOpenOption.READ)) {
+			final long newSize = fc.size();
+			if (!hint && (newSize == size) && (newMtime == mtime)) {
+				return false;
+			}
+			// Full blocks present in both index and file, blocks after them are always computed
+			final int keep = (int) (Math.min(size, newSize) / blockSize);
+			final boolean grown = (newSize > size);
+			size = newSize;
+			mtime = newMtime;
+			crcs = Arrays.copyOf(crcs, blocks(newSize));
+			int changed = keep;
+			if (hint) {
+				final int from = (int) Math.min(keep, offset / blockSize);
+				final int to = (int) Math.min(keep, (offset + length + blockSize - 1) / blockSize);
+				changed = recompute(fc, from, to, changed);
+			} else if (!grown || (keep == 0) || (recompute(fc, keep - 1, keep, keep) < keep)) {
+				// Rewritten, truncated, or last kept block changed (not append-only): rehash kept blocks
+				changed = recompute(fc, 0, keep, changed);
+			}
+			recompute(fc, keep, crcs.length, changed);
+			value = combineBlocks(0, crcs.length, emptyValue());
+			try (FileChannel out = FileChannel.open(indexFile, StandardOpenOption.WRITE)) {
+				out.truncate(HEADER_SIZE + ((long) changed * crcBytes));
+				out.position(out.size());
+				final DataOutputStream dos = new DataOutputStream(
+						new BufferedOutputStream(Channels.newOutputStream(out)));
+				writeBlocks(dos, changed);
+				dos.flush();
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Compute blocks and update index
+	 *
+	 * @return first changed block (or changed, if lower)
+	 */
+	private int recompute(final FileChannel fc, final int fromBlock, final int toBlock, int changed)
+			throws IOException {
+		final long[] values = computeBlocks(fc, fromBlock, toBlock);
+		for (int i = 0; i < values.length; i++) {
+			if (crcs[fromBlock + i] != values[i]) {
+				crcs[fromBlock + i] = values[i];
+				changed = Math.min(changed, fromBlock + i);
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * Verify all blocks of file
+	 *
+	 * @param file data file
+	 * @return numbers of damaged blocks (empty if all right)
+	 * @throws IOException if error reading file
+	 */
+	public long[] verify(final Path file) throws IOException {
+		return verify(file, 0, crcs.length);
+	}
+
+	/**
+	 * Verify a range of blocks of file (incremental scrubbing)
+	 *
+	 * @param file data file
+	 * @param fromBlock first block (inclusive)
+	 * @param toBlock last block (exclusive)
+	 * @return numbers of damaged blocks (empty if all right)
+	 * @throws IOException if error reading file
+	 */
+	public long[] verify(final Path file, final int fromBlock, final int toBlock) throws IOException {
+		if ((fromBlock < 0) || (toBlock > crcs.length) || (fromBlock > toBlock)) {
+			throw new InvalidParameterException("Invalid range: " + fromBlock + "-" + toBlock);
+		}
+		long[] bad = new long[8];
+		int count = 0;
+		try (FileChannel fc = FileChannel.open(file, StandardOpenOption.READ)) {
+			final CRC crc = ENGINE.getInstance(p);
+			final ByteBuffer buf = ByteBuffer.allocateDirect(blockSize);
+			for (int i = fromBlock; i < toBlock; i++) {
+				final long want = blockLength(i);
+				final boolean ok = (readBlock(fc, buf, i) == want) && (computeBlock(crc, buf) == crcs[i]);
+				if (!ok) {
+					if (count == bad.length) {
+						bad = Arrays.copyOf(bad, count << 1);
+					}
+					bad[count++] = i;
+				}
+			}
+		}
+		return Arrays.copyOf(bad, count);
+	}
+
+	public Params getParams() {
+		return p;
+	}
+
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+	/**
+	 * Return number of blocks
+	 *
+	 * @return count
+	 */
+	public int getBlocks() {
+		return crcs.length;
+	}
+
+	/**
+	 * Return CRC of a block
+	 *
+	 * @param block number
+	 * @return crc value
+	 */
+	public long getBlockValue(final int block) {
+		return crcs[block];
+	}
+
+	/**
+	 * Return size of file when indexed
+	 *
+	 * @return size in bytes
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * Return mtime of file when indexed
+	 *
+	 * @return milliseconds since epoch
+	 */
+	public long getLastModified() {
+		return mtime;
+	}
+
+	/**
+	 * Return CRC of whole file
+	 *
+	 * @return crc value
+	 */
+	public long getValue() {
+		return value;
+	}
+
+	private static long mtime(final Path file) throws IOException {
+		return Files.getLastModifiedTime(file).toMillis();
+	}
+
+	private int blocks(final long size) throws IOException {
+		final long blocks = ((size + blockSize - 1) / blockSize);
+		if (blocks > Integer.MAX_VALUE) {
+			throw new IOException("Too many blocks: " + blocks);
+		}
+		return (int) blocks;
+	}
+
+	private long blockLength(final int block) {
+		return Math.min(blockSize, size - ((long) block * blockSize));
+	}
+
+	private long emptyValue() {
+		return CRC.fromRegister(p, p.init);
+	}
+
+	private long[] computeBlocks(final FileChannel fc, final int fromBlock, final int toBlock) throws IOException {
+		final long[] values = new long[Math.max(0, toBlock - fromBlock)];
+		final CRC crc = ENGINE.getInstance(p);
+		final ByteBuffer buf = ByteBuffer.allocateDirect(blockSize);
+		for (int i = 0; i < values.length; i++) {
+			readBlock(fc, buf, fromBlock + i);
+			values[i] = computeBlock(crc, buf);
+		}
+		return values;
+	}
+
+	private int readBlock(final FileChannel fc, final ByteBuffer buf, final int block) throws IOException {
+		final long position = ((long) block * blockSize);
+		buf.clear();
+		while (buf.hasRemaining()) {
+			if (fc.read(buf, position + buf.position()) < 0) {
+				break;
+			}
+		}
+		buf.flip();
+		return buf.remaining();
+	}
+
+	private static long computeBlock(final CRC crc, final ByteBuffer buf) {
+		crc.reset();
+		crc.update(buf);
+		return crc.getValue();
+	}
+
+	/**
+	 * Combine a range of block CRCs after a prefix CRC
+	 */
+	private long combineBlocks(final int fromBlock, final int toBlock, long crc) {
+		for (int i = fromBlock; i < toBlock; i++) {
+			final long length = blockLength(i);
+			if (length == blockSize) {
+				final long reg = CRC.toRegister(p, crc) ^ p.init;
+				crc = CRC.fromRegister(p, CRC.multiply(p, reg, blockPower) ^ CRC.toRegister(p, crcs[i]));
+			} else {
+				crc = CRC.combine(p, crc, crcs[i], length);
+			}
+		}
+		return crc;
+	}
+
+	private void writeBlocks(final DataOutputStream out, final int fromBlock) throws IOException {
+		for (int i = fromBlock; i < crcs.length; i++) {
+			writeCRC(out, crcs[i]);
+		}
+		out.writeLong(size);
+		out.writeLong(mtime);
+		out.writeLong(value);
+		out.writeInt(MAGIC_END);
+	}
+
+	private void writeCRC(final OutputStream out, final long crc) throws IOException {
+		for (int i = crcBytes - 1; i >= 0; i--) {
+			out.write((int) (crc >>> (i << 3)));
+		}
+	}
+
+	private long readCRC(final InputStream in) throws IOException {
+		long crc = 0;
+		for (int i = 0; i < crcBytes; i++) {
+			final int b = in.read();
+			if (b < 0) {
+				throw new IOException("Unexpected end of index");
+			}
+			crc = (crc << 8) | b;
+		}
+		return crc;
+	}
+
+	/**
+	 * Simple Test
+	 *
+	 * @param args ignored
+	 * @throws IOException if error
+	 */
+	public static void main(final String[] args) throws IOException {
+		final int blockSize = 4096;
+		final byte[] random = new byte[blockSize * 11 + 123];
+		new Random(42).nextBytes(random);
+		final Path file = Files.createTempFile("crc-", ".bin");
+		final Path index = sidecar(file);
+		try {
+			for (final Preset preset : new Preset[] { Preset.CRC_32_ISO_HDLC, Preset.CRC_64_XZ, Preset.CRC_16_ARC,
+					Preset.CRC_5_USB, Preset.CRC_24_OPENPGP }) {
+				System.out.println("Testing: " + preset.name());
+				Files.write(file, Arrays.copyOf(random, blockSize * 5 + 7));
+				BlockCRCIndex idx = build(preset.params, file, blockSize);
+				idx.save(index);
+				idx = load(preset.params, index);
+				check(idx, preset, file);
+				if (idx.refresh(file, index)) {
+					throw new IllegalStateException("Unexpected refresh");
+				}
+				// Append and refresh (index appended)
+				Files.write(file, Arrays.copyOfRange(random, blockSize * 5 + 7, random.length),
+						StandardOpenOption.APPEND);
+				Files.setLastModifiedTime(file, FileTime.fromMillis(idx.getLastModified() + 2000));
+				if (!idx.refresh(file, index)) {
+					throw new IllegalStateException("Expected refresh");
+				}
+				check(idx, preset, file);
+				check(load(preset.params, index), preset, file);
+				// Corrupt a block
+				final byte[] corrupted = random.clone();
+				corrupted[blockSize * 7 + 100] ^= 1;
+				Files.write(file, corrupted);
+				final long[] bad = load(preset.params, index).verify(file);
+				if ((bad.length != 1) || (bad[0] != 7)) {
+					throw new IllegalStateException("Invalid verify: " + Arrays.toString(bad));
+				}
+				// Modified in place (blocks 1 and 10) and appended: last kept block changed, rehash
+				idx = load(preset.params, index);
+				final byte[] modified = Arrays.copyOf(corrupted, corrupted.length + blockSize);
+				modified[blockSize + 1] ^= 1;
+				modified[blockSize * 10 + 1] ^= 1;
+				Files.write(file, modified);
+				Files.setLastModifiedTime(file, FileTime.fromMillis(idx.getLastModified() + 4000));
+				idx.refresh(file, index);
+				check(idx, preset, file);
+				check(load(preset.params, index), preset, file);
+				// Modified in place with hint of region
+				modified[blockSize * 3 + 5] ^= 1;
+				modified[blockSize * 4 - 1] ^= 1;
+				Files.write(file, modified);
+				idx.refresh(file, index, blockSize * 3 + 5, blockSize - 5);
+				check(idx, preset, file);
+				check(load(preset.params, index), preset, file);
+				// Truncated
+				Files.write(file, Arrays.copyOf(modified, blockSize * 3 + 5));
+				Files.setLastModifiedTime(file, FileTime.fromMillis(idx.getLastModified() + 6000));
+				idx.refresh(file, index);
+				check(idx, preset, file);
+				check(load(preset.params, index), preset, file);
+			}
+		} finally {
+			Files.deleteIfExists(index);
+			Files.delete(file);
+		}
+		System.out.println("DONE: All right!");
+	}
+
+	private static void check(final BlockCRCIndex idx, final Preset preset, final Path file) throws IOException {
+		final long want = FileCRC.compute(preset, file);
+		if ((idx.getValue() != want) || (idx.verify(file).length != 0) || (idx.getSize() != Files.size(file))) {
+			throw new IllegalStateException("Invalid index(" + preset.name() + ")" //
+					+ " expected: " + Long.toHexString(want) //
+					+ " calculated: " + Long.toHexString(idx.getValue()));
+		}
+	}
+}
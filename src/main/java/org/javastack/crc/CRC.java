@@ -1,5 +1,8 @@
 package org.javastack.crc;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 /**
  * Abstraction of CRC classes
  * 
@@ -16,6 +19,19 @@ public abstract class CRC implements Checksum {
 	 * Use with {@link String#getBytes()}
 	 */
 	public static final String TEST_VALUE = "123456789";
+	/**
+	 * Zero-runs shorter than this are processed as bytes in {@link #updateZeros(long)}
+	 */
+	private static final byte[] ZEROS = new byte[64];
+	/**
+	 * Max size of chunks copied from direct or read-only buffers in {@link #update(ByteBuffer)}
+	 */
+	private static final int SCRATCH_SIZE = 4096;
+
+	/**
+	 * Reusable copy buffer of {@link #update(ByteBuffer)} (created on first use)
+	 */
+	private byte[] scratch;
 
 	@Override
 	public void update(final byte[] buffer, final int offset, int length) {
@@ -27,9 +43,27 @@ public abstract class CRC implements Checksum {
 
 	@Override
 	public void update(final byte[] buffer) {
-		for (int i = 0; i < buffer.length; i++) {
-			final int b = buffer[i];
-			update(b);
+		update(buffer, 0, buffer.length);
+	}
+
+	@Override
+	public void update(final ByteBuffer buffer) {
+		final int position = buffer.position();
+		final int limit = buffer.limit();
+		if (buffer.hasArray()) {
+			update(buffer.array(), buffer.arrayOffset() + position, limit - position);
+			buffer.position(limit);
+			return;
+		}
+		// Direct or read-only: copy in bounded chunks to the bulk update
+		byte[] b = scratch;
+		if ((b == null) || (b.length < Math.min(limit - position, SCRATCH_SIZE))) {
+			b = scratch = new byte[Math.min(limit - position, SCRATCH_SIZE)];
+		}
+		while (buffer.hasRemaining()) {
+			final int len = Math.min(buffer.remaining(), b.length);
+			buffer.get(b, 0, len);
+			update(b, 0, len);
 		}
 	}
 
@@ -38,6 +72,51 @@ public abstract class CRC implements Checksum {
 		update((int) b);
 	}
 
+	/**
+	 * Updates the current checksum with count zero bytes, in O(log(count)) time for long runs (sparse files,
+	 * preallocated space), multiplying the register by x^(8*count) modulo polynomial.
+	 * 
+	 * @param count number of zero bytes
+	 */
+	public void updateZeros(long count) {
+		if (count > ZEROS.length) {
+			try {
+				final Params p = getParams();
+				restoreState(fromRegister(p, shift(p, toRegister(p, getState()), count)));
+				return;
+			} catch (UnsupportedOperationException e) {
+				// Process zero bytes
+			}
+		}
+		for (; count > 0; count -= ZEROS.length) {
+			update(ZEROS, 0, (int) Math.min(count, ZEROS.length));
+		}
+	}
+
+	/**
+	 * Return current state: the CRC value of data processed so far (the same as {@link #getValue()}). State is
+	 * portable between engines with the same {@link Params}.
+	 * 
+	 * @return state
+	 * @see #restoreState(long)
+	 * @see CRCState
+	 */
+	public long getState() {
+		return getValue();
+	}
+
+	/**
+	 * Restore a state saved with {@link #getState()}, next updates continue as if the data that produced the state
+	 * was processed by this instance.
+	 * 
+	 * @param state to restore
+	 * @throws UnsupportedOperationException if not supported by this CRC
+	 * @see CRCState
+	 */
+	public void restoreState(final long state) {
+		throw new UnsupportedOperationException("restoreState not supported: " + getClass().getName());
+	}
+
 	/**
 	 * Reverse input as described:
 	 * 
@@ -81,6 +160,104 @@ public abstract class CRC implements Checksum {
 		return (rev >>> rshift) & mask;
 	}
 
+	/**
+	 * Combine two CRCs: compute crc(A||B) from crc(A), crc(B) and length of B, in O(log(lengthB)) time.
+	 * <p>
+	 * Generalization of zlib's <code>crc32_combine</code> to any {@link Params}.
+	 * 
+	 * @param p params of both CRCs
+	 * @param crcA value of first block ({@link #getValue()})
+	 * @param crcB value of second block ({@link #getValue()})
+	 * @param lengthB length in bytes of second block
+	 * @return crc of both blocks concatenated
+	 */
+	public static long combine(final Params p, final long crcA, final long crcB, final long lengthB) {
+		final long regA = toRegister(p, crcA);
+		final long regB = toRegister(p, crcB);
+		return fromRegister(p, shift(p, regA ^ p.init, lengthB) ^ regB);
+	}
+
+	/**
+	 * Little-endian view of a buffer, to read a word at a time and peel its bytes from low to high (memory order)
+	 * 
+	 * @param buffer input
+	 * @return duplicate of buffer in little-endian order
+	 */
+	static ByteBuffer littleEndian(final ByteBuffer buffer) {
+		return buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * Convert a final CRC value into the (non-reflected) register that produced it
+	 * 
+	 * @param p params of CRC
+	 * @param value of crc
+	 * @return register
+	 */
+	static long toRegister(final Params p, final long value) {
+		final long reg = (value ^ p.xorout) & p.mask;
+		return (p.refout ? reverse(reg, p.width) : reg);
+	}
+
+	/**
+	 * Convert a (non-reflected) register into final CRC value
+	 * 
+	 * @param p params of CRC
+	 * @param reg register
+	 * @return value of crc
+	 */
+	static long fromRegister(final Params p, final long reg) {
+		return ((p.refout ? reverse(reg, p.width) : reg) ^ p.xorout) & p.mask;
+	}
+
+	/**
+	 * Multiply register by x^(8*length) modulo polynomial, the same as feed register with length zero bytes.
+	 * 
+	 * @param p params of CRC
+	 * @param reg (non-reflected) register
+	 * @param length in bytes
+	 * @return new register
+	 */
+	static long shift(final Params p, long reg, long length) {
+		final long[] powers = p.powers();
+		for (int k = 0; (length != 0) && (reg != 0); k++, length >>>= 1) {
+			if ((length & 1) != 0) {
+				reg = multiply(p, reg, powers[k]);
+			}
+		}
+		return reg;
+	}
+
+	/**
+	 * Multiply a and b modulo polynomial in GF(2)
+	 * 
+	 * @param p params of CRC
+	 * @param a (non-reflected) polynomial
+	 * @param b (non-reflected) polynomial
+	 * @return a*b modulo poly
+	 */
+	static long multiply(final Params p, final long a, final long b) {
+		long r = 0;
+		for (long bit = p.msb; bit != 0; bit >>>= 1) {
+			r = multiplyX(p, r);
+			if ((b & bit) != 0) {
+				r ^= a;
+			}
+		}
+		return r;
+	}
+
+	/**
+	 * Multiply a by x modulo polynomial in GF(2)
+	 * 
+	 * @param p params of CRC
+	 * @param a (non-reflected) polynomial
+	 * @return a*x modulo poly
+	 */
+	static long multiplyX(final Params p, final long a) {
+		return (((a & p.msb) != 0) ? ((a << 1) ^ p.poly) : (a << 1)) & p.mask;
+	}
+
 	/**
 	 * Simple Test
 	 * 
@@ -89,5 +266,36 @@ public abstract class CRC implements Checksum {
 	public static void main(String[] args) {
 		System.out.println("edb88320=" + Integer.toHexString(reverse(0x04c11db7, 32))); // CRC-32-ISO-HDLC
 		System.out.println("c96c5795d7870f42=" + Long.toHexString(reverse(0x42f0e1eba9ea3693L, 64))); // CRC-64-ECMA
+		final byte[] a = "12345".getBytes(), b = "6789".getBytes();
+		for (final Preset preset : Preset.values()) {
+			final CRC crc = preset.getInstance();
+			crc.update(a);
+			final long crcA = crc.getValue();
+			crc.reset();
+			crc.update(b);
+			final long crcB = crc.getValue();
+			if (combine(preset.params, crcA, crcB, b.length) != preset.params.check) {
+				throw new RuntimeException("Invalid combine(" + preset.name() + ")");
+			}
+		}
+		System.out.println("combine: All right!");
+		final byte[] zeros = new byte[100000];
+		for (final Preset preset : Preset.values()) {
+			for (final Engine engine : Engine.values()) {
+				final CRC ref = preset.getInstance(engine);
+				final CRC crc = preset.getInstance(engine);
+				for (final int count : new int[] { 0, 1, 63, 64, 65, 1000, 99999 }) {
+					ref.update(a);
+					ref.update(zeros, 0, count);
+					crc.update(a);
+					crc.updateZeros(count);
+					if (ref.getValue() != crc.getValue()) {
+						throw new RuntimeException("Invalid updateZeros(" + preset.name() + ")" //
+								+ " engine: " + engine + " count: " + count);
+					}
+				}
+			}
+		}
+		System.out.println("updateZeros: All right!");
 	}
 }
@@ -38,6 +38,11 @@ public class CRC16_XMODEM extends CRC {
 		crc &= 0xFFFF;
 	}
 
+	@Override
+	public void restoreState(final long state) {
+		crc = (int) (state & 0xFFFF);
+	}
+
 	@Override
 	public long getValue() {
 		return ((long) (crc ^ 0x0) & 0xFFFFL);
@@ -1,5 +1,7 @@
 package org.javastack.crc;
 
+import java.nio.ByteBuffer;
+
 /**
  * CRC32 (Ethernet/ANSI X3.66/ITU-T V.42) Checksum
  * poly=0x04c11db7 init=0xffffffff refin=true refout=true xorout=0xffffffff check=0xcbf43926
@@ -85,20 +87,61 @@ public class CRC32 extends CRC {
 	};
 	// @formatter:on
 
+	/**
+	 * JDK intrinsic, if available (lookup-table is used otherwise)
+	 */
+	private final CRC intrinsic = IntrinsicCRC.newInstance(Preset.CRC_32_ISO_HDLC.params);
 	private int crc = ~0;
 
 	@Override
 	public void reset() {
+		if (intrinsic != null) {
+			intrinsic.reset();
+		}
 		crc = ~0;
 	}
 
 	@Override
 	public void update(final int b) {
+		if (intrinsic != null) {
+			intrinsic.update(b);
+			return;
+		}
 		crc = ((crc >>> 8) ^ CRC_TABLE[(crc ^ (b & 0xFF)) & 0xFF]);
 	}
 
+	@Override
+	public void update(final byte[] buffer, final int offset, final int length) {
+		if (intrinsic != null) {
+			intrinsic.update(buffer, offset, length);
+			return;
+		}
+		super.update(buffer, offset, length);
+	}
+
+	@Override
+	public void update(final ByteBuffer buffer) {
+		if (intrinsic != null) {
+			intrinsic.update(buffer);
+			return;
+		}
+		super.update(buffer);
+	}
+
+	@Override
+	public void restoreState(final long state) {
+		if (intrinsic != null) {
+			intrinsic.restoreState(state);
+			return;
+		}
+		crc = ~((int) state);
+	}
+
 	@Override
 	public long getValue() {
+		if (intrinsic != null) {
+			return intrinsic.getValue();
+		}
 		return ((long) (crc ^ 0xFFFFFFFF) & 0xFFFFFFFFL);
 	}
 
@@ -121,6 +121,11 @@ public class CRC64 extends CRC {
 		crc = CRC_TABLE[tab_index] ^ (crc << 8);
 	}
 
+	@Override
+	public void restoreState(final long state) {
+		crc = state;
+	}
+
 	@Override
 	public long getValue() {
 		return crc;
@@ -38,6 +38,11 @@ public class CRC8_DVB_S2 extends CRC {
 		crc &= 0xFF;
 	}
 
+	@Override
+	public void restoreState(final long state) {
+		crc = (int) (state & 0xFF);
+	}
+
 	@Override
 	public long getValue() {
 		return (crc & 0xFF);
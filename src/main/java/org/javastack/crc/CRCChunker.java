@@ -0,0 +1,123 @@
+package org.javastack.crc;
+
+import java.security.InvalidParameterException;
+import java.util.HashSet;
+import java.util.Random;
+
+/**
+ * Content-defined chunking with a {@link RollingCRC}: a chunk ends where the rolling value of the window matches
+ * the mask (<code>(value &amp; mask) == 0</code>), within minimum and maximum chunk sizes. Cut points depend only on
+ * content, so inserted or removed data only changes nearby chunks (deduplication).
+ * <p>
+ * Average chunk size is about <code>minSize + 2^bits(mask)</code>.
+ *
+ * @see RollingCRC
+ */
+public class CRCChunker {
+	private final RollingCRC rolling;
+	private final long mask;
+	private final int minSize;
+	private final int maxSize;
+	private long length;
+
+	/**
+	 * Create a chunker
+	 *
+	 * @param p params of CRC
+	 * @param window length of rolling window in bytes
+	 * @param mask bits of rolling value that must be zero at cut point
+	 * @param minSize minimum size of chunk
+	 * @param maxSize maximum size of chunk
+	 * @throws InvalidParameterException if sizes are invalid
+	 */
+	public CRCChunker(final Params p, final int window, final long mask, final int minSize, final int maxSize)
+			throws InvalidParameterException {
+		if ((minSize < 0) || (maxSize <= 0) || (minSize > maxSize)) {
+			throw new InvalidParameterException("Invalid sizes: " + minSize + "-" + maxSize);
+		}
+		this.rolling = new RollingCRC(p, window);
+		this.mask = mask;
+		this.minSize = minSize;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Reset to start of stream
+	 */
+	public void reset() {
+		rolling.reset();
+		length = 0;
+	}
+
+	/**
+	 * Feed data and find next cut point. Data after a cut point must be fed again in next call (if any).
+	 *
+	 * @param buffer input
+	 * @param offset in buffer
+	 * @param length of data
+	 * @return position in buffer where current chunk ends (exclusive) or -1 if chunk continues after this data
+	 */
+	public int next(final byte[] buffer, final int offset, final int length) {
+		final RollingCRC r = rolling;
+		long len = this.length;
+		for (int i = offset, end = offset + length; i < end; i++) {
+			r.update(buffer[i]);
+			len++;
+			if ((len >= maxSize) || ((len >= minSize) && ((r.getValue() & mask) == 0))) {
+				this.length = 0;
+				return i + 1;
+			}
+		}
+		this.length = len;
+		return -1;
+	}
+
+	/**
+	 * Return length of current (unfinished) chunk
+	 *
+	 * @return length in bytes
+	 */
+	public long getLength() {
+		return length;
+	}
+
+	/**
+	 * Simple Test
+	 *
+	 * @param args ignored
+	 */
+	public static void main(final String[] args) {
+		final byte[] random = new byte[1 << 20];
+		new Random(42).nextBytes(random);
+		// Insert 7 bytes at start: cut points must be the same (shifted) once window resynchronizes
+		final byte[] shifted = new byte[random.length + 7];
+		System.arraycopy(random, 0, shifted, 7, random.length);
+		final Params p = Preset.CRC_32_ISCSI.params;
+		final HashSet<Integer> cuts = cuts(new CRCChunker(p, 48, 0xFFF, 1024, 65536), random, 0);
+		final HashSet<Integer> other = cuts(new CRCChunker(p, 48, 0xFFF, 1024, 65536), shifted, 7);
+		other.retainAll(cuts);
+		System.out.println("chunks=" + cuts.size() + " avg=" + (random.length / Math.max(cuts.size(), 1)) //
+				+ " common=" + other.size());
+		if ((cuts.size() < 100) || (other.size() < (cuts.size() - 2))) {
+			throw new InvalidParameterException("Invalid chunking");
+		}
+		System.out.println("DONE: All right!");
+	}
+
+	private static HashSet<Integer> cuts(final CRCChunker chunker, final byte[] data, final int skew) {
+		final HashSet<Integer> cuts = new HashSet<Integer>();
+		int last = 0;
+		for (int offset = 0; offset < data.length;) {
+			final int cut = chunker.next(data, offset, data.length - offset);
+			if (cut < 0) {
+				break;
+			}
+			if (((cut - last) < 1024) || ((cut - last) > 65536)) {
+				throw new InvalidParameterException("Invalid chunk size: " + (cut - last));
+			}
+			cuts.add(cut - skew);
+			last = offset = cut;
+		}
+		return cuts;
+	}
+}
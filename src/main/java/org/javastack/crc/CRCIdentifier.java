@@ -0,0 +1,561 @@
+package org.javastack.crc;
+
+import java.security.InvalidParameterException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Identify CRC algorithm from samples (message and its crc), like captured frames of a protocol: all {@link Preset}
+ * are tested in parallel, and parameters can be searched (poly, init, xorout, refin, refout) for a given width, in
+ * the style of CRC RevEng.
+ * <p>
+ * Search uses linearity instead of brute force: xor of crcs of two messages of the same length does not depend on
+ * init and xorout, so <code>(a^b)*x^width + (crcA^crcB)</code> is a multiple of poly. Poly is found as divisor (of
+ * degree width) of the GCD of these polynomials, then init and xorout are solved as a linear system using samples
+ * of different lengths (or init 0 and all ones if all samples have the same length).
+ *
+ * @see Preset
+ * @see Params
+ */
+public class CRCIdentifier {
+	/**
+	 * Maximum number of candidate polynomials tested per reflection in {@link #search(int, byte[][], long[],
+	 * ForkJoinPool)} (more samples of the same length reduce candidates)
+	 */
+	public static final long MAX_CANDIDATES = (1L << 24);
+	/**
+	 * Maximum number of free bits of init enumerated if samples do not determine it
+	 */
+	private static final int MAX_FREE_BITS = 8;
+
+	private static final Engine ENGINE = Engine.TABLE;
+
+	/**
+	 * Find presets that produce the crc of all samples, testing presets in parallel
+	 *
+	 * @param messages of samples
+	 * @param crcs of samples
+	 * @param pool to run tasks
+	 * @return matching presets (in declaration order)
+	 * @throws InvalidParameterException if samples are invalid
+	 */
+	public static List<Preset> identifyPresets(final byte[][] messages, final long[] crcs, final ForkJoinPool pool)
+			throws InvalidParameterException {
+		checkSamples(messages, crcs);
+		final Preset[] presets = Preset.values();
+		final List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>(presets.length);
+		for (final Preset preset : presets) {
+			tasks.add(new Callable<Boolean>() {
+				@Override
+				public Boolean call() {
+					return matches(preset.params, messages, crcs);
+				}
+			});
+		}
+		final List<Boolean> results = invokeAll(pool, tasks);
+		final List<Preset> found = new ArrayList<Preset>();
+		for (int i = 0; i < presets.length; i++) {
+			if (results.get(i)) {
+				found.add(presets[i]);
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Identify params of CRC: matching presets (of given width) or, if none, search parameters of given width
+	 *
+	 * @param width in bits of CRC (0 to test presets of any width, without search)
+	 * @param messages of samples
+	 * @param crcs of samples
+	 * @param pool to run tasks
+	 * @return matching params
+	 * @throws InvalidParameterException if samples are invalid, or are not enough to search
+	 */
+	public static List<Params> identify(final int width, final byte[][] messages, final long[] crcs,
+			final ForkJoinPool pool) throws InvalidParameterException {
+		final List<Params> found = new ArrayList<Params>();
+		for (final Preset preset : identifyPresets(messages, crcs, pool)) {
+			if ((width == 0) || (preset.params.width == width)) {
+				found.add(preset.params);
+			}
+		}
+		if (found.isEmpty() && (width != 0)) {
+			found.addAll(search(width, messages, crcs, pool));
+		}
+		return found;
+	}
+
+	/**
+	 * Search params of CRC of given width that produce the crc of all samples. At least two samples of the same
+	 * length are needed (more samples reduce candidates), samples of different lengths are needed to find init
+	 * (if all have the same length, init 0 and all ones are reported).
+	 *
+	 * @param width in bits of CRC (1-64)
+	 * @param messages of samples
+	 * @param crcs of samples
+	 * @param pool to run tasks
+	 * @return matching params (presets are returned with their name)
+	 * @throws InvalidParameterException if samples are invalid, or are not enough to search
+	 */
+	public static List<Params> search(final int width, final byte[][] messages, final long[] crcs,
+			final ForkJoinPool pool) throws InvalidParameterException {
+		if ((width < 1) || (width > 64)) {
+			throw new InvalidParameterException("Invalid width: " + width);
+		}
+		checkSamples(messages, crcs);
+		final long mask = (~0L >>> (64 - width));
+		for (final long crc : crcs) {
+			if ((crc & ~mask) != 0) {
+				throw new InvalidParameterException("Invalid crc for width " + width + ": " + Long.toHexString(crc));
+			}
+		}
+		// Differential pairs: each sample with the first sample of the same length
+		final Map<Integer, Integer> firstByLength = new HashMap<Integer, Integer>();
+		final List<int[]> pairs = new ArrayList<int[]>();
+		for (int i = 0; i < messages.length; i++) {
+			final Integer first = firstByLength.get(messages[i].length);
+			if (first == null) {
+				firstByLength.put(messages[i].length, i);
+			} else if (!Arrays.equals(messages[first], messages[i])) {
+				pairs.add(new int[] { first, i });
+			}
+		}
+		if (pairs.isEmpty()) {
+			throw new InvalidParameterException("Not enough samples: two distinct messages of the same length needed");
+		}
+		// GCD of differential polynomials for each reflection (refin, refout)
+		final List<Callable<long[]>> gcdTasks = new ArrayList<Callable<long[]>>(4);
+		for (int r = 0; r < 4; r++) {
+			final boolean refin = ((r & 2) != 0), refout = ((r & 1) != 0);
+			gcdTasks.add(new Callable<long[]>() {
+				@Override
+				public long[] call() {
+					return differentialGCD(width, refin, refout, messages, crcs, pairs);
+				}
+			});
+		}
+		final List<long[]> gcds = invokeAll(pool, gcdTasks);
+		// Divisors of degree width of each GCD are the candidate polynomials
+		final int chunks = Math.max(1, pool.getParallelism() * 4);
+		final List<Callable<List<Long>>> polyTasks = new ArrayList<Callable<List<Long>>>();
+		final List<Integer> polyReflections = new ArrayList<Integer>();
+		boolean skipped = false;
+		for (int r = 0; r < 4; r++) {
+			final long[] g = gcds.get(r);
+			final int degree = degree(g);
+			if (degree < width) {
+				continue;
+			}
+			final int excess = (degree - width);
+			// enumerate the smaller of cofactor or poly, both with constant term (GCD is not divisible by x)
+			final boolean byCofactor = (excess < width);
+			final int enumDegree = (byCofactor ? excess : width);
+			final long count = ((enumDegree == 0) ? 1 : (1L << (enumDegree - 1)));
+			if (count > MAX_CANDIDATES) {
+				skipped = true;
+				continue;
+			}
+			final long step = Math.max(1, (count + chunks - 1) / chunks);
+			for (long from = 0; from < count; from += step) {
+				final long start = from, end = Math.min(count, from + step);
+				polyTasks.add(new Callable<List<Long>>() {
+					@Override
+					public List<Long> call() {
+						return divisors(g, width, byCofactor, enumDegree, start, end);
+					}
+				});
+				polyReflections.add(r);
+			}
+		}
+		final List<List<Long>> polys = invokeAll(pool, polyTasks);
+		// Solve init and xorout for each candidate
+		final List<Callable<List<Params>>> solveTasks = new ArrayList<Callable<List<Params>>>();
+		for (int i = 0; i < polys.size(); i++) {
+			final int r = polyReflections.get(i);
+			final boolean refin = ((r & 2) != 0), refout = ((r & 1) != 0);
+			for (final long poly : polys.get(i)) {
+				solveTasks.add(new Callable<List<Params>>() {
+					@Override
+					public List<Params> call() {
+						return solve(width, poly, refin, refout, messages, crcs);
+					}
+				});
+			}
+		}
+		final LinkedHashSet<Params> found = new LinkedHashSet<Params>();
+		for (final List<Params> solved : invokeAll(pool, solveTasks)) {
+			found.addAll(solved);
+		}
+		if (found.isEmpty() && skipped) {
+			throw new InvalidParameterException("Too many candidates: more samples of the same length are needed");
+		}
+		return new ArrayList<Params>(found);
+	}
+
+	private static final void checkSamples(final byte[][] messages, final long[] crcs)
+			throws InvalidParameterException {
+		if ((messages.length == 0) || (messages.length != crcs.length)) {
+			throw new InvalidParameterException("Invalid samples: messages=" + messages.length //
+					+ " crcs=" + crcs.length);
+		}
+	}
+
+	private static final <T> List<T> invokeAll(final ForkJoinPool pool, final List<Callable<T>> tasks) {
+		final List<ForkJoinTask<T>> forks = new ArrayList<ForkJoinTask<T>>(tasks.size());
+		for (final Callable<T> task : tasks) {
+			forks.add(pool.submit(task));
+		}
+		final List<T> results = new ArrayList<T>(forks.size());
+		for (final ForkJoinTask<T> fork : forks) {
+			results.add(fork.join());
+		}
+		return results;
+	}
+
+	private static final boolean matches(final Params p, final byte[][] messages, final long[] crcs) {
+		final CRC crc = ENGINE.getInstance(p);
+		for (int i = 0; i < messages.length; i++) {
+			if ((crcs[i] & ~p.mask) != 0) {
+				return false;
+			}
+			crc.reset();
+			crc.update(messages[i]);
+			if (crc.getValue() != crcs[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * GCD of polynomials <code>(a^b)*x^width + reg(crcA^crcB)</code> of each pair, without factors x
+	 */
+	private static final long[] differentialGCD(final int width, final boolean refin, final boolean refout,
+			final byte[][] messages, final long[] crcs, final List<int[]> pairs) {
+		long[] g = null;
+		for (final int[] pair : pairs) {
+			final byte[] a = messages[pair[0]], b = messages[pair[1]];
+			final long diff = (crcs[pair[0]] ^ crcs[pair[1]]);
+			final long[] d = new long[((a.length * 8 + width) >>> 6) + 1];
+			// register of difference (init and xorout cancel)
+			xorBits(d, 0, (refout ? CRC.reverse(diff, width) : diff), width);
+			// message bits, first bit processed is the highest degree
+			for (int j = 0; j < a.length; j++) {
+				final int v = (a[j] ^ b[j]) & 0xFF;
+				xorBits(d, width + ((a.length - 1 - j) << 3), (refin ? (Integer.reverse(v) >>> 24) : v), 8);
+			}
+			g = ((g == null) ? d : gcd(g, d));
+			if (degree(g) < width) {
+				break;
+			}
+		}
+		// CRC polynomials have constant term, remove factors x
+		int low = 0;
+		while ((degree(g) >= 0) && !testBit(g, low)) {
+			low++;
+		}
+		return shiftRight(g, low);
+	}
+
+	/**
+	 * Polynomials (normal representation, without x^width) of degree width that divide g, enumerating candidates
+	 * from start to end (exclusive)
+	 */
+	private static final List<Long> divisors(final long[] g, final int width, final boolean byCofactor,
+			final int enumDegree, final long start, final long end) {
+		final List<Long> found = new ArrayList<Long>();
+		final long[] scratch = new long[g.length];
+		for (long i = start; i < end; i++) {
+			final long[] c = new long[2];
+			xorBits(c, enumDegree, 1, 1);
+			xorBits(c, 0, ((enumDegree == 0) ? 0 : ((i << 1) | 1)), enumDegree);
+			if (byCofactor) {
+				final long[] p = divide(g, c, scratch);
+				if (p != null) {
+					found.add(p[0] & (~0L >>> (64 - width)));
+				}
+			} else if (divide(g, c, scratch) != null) {
+				found.add(c[0] & (~0L >>> (64 - width)));
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Solve init and xorout for a poly: crc = out(reg0(msg)) ^ out(init*x^(8*len)) ^ xorout, linear in init
+	 */
+	private static final List<Params> solve(final int width, final long poly, final boolean refin,
+			final boolean refout, final byte[][] messages, final long[] crcs) {
+		final Params base = new Params("CRC-" + width + "/BASE", width, poly, 0, 0, refin, refout, 0);
+		final CRC crc = ENGINE.getInstance(base);
+		// k[i] = out(init*x^(8*len[i])) ^ xorout
+		final long[] k = new long[messages.length];
+		for (int i = 0; i < messages.length; i++) {
+			crc.reset();
+			crc.update(messages[i]);
+			k[i] = (crcs[i] ^ crc.getValue());
+		}
+		// Equations (one per bit) between samples of different lengths
+		final int len0 = messages[0].length;
+		final List<long[]> rows = new ArrayList<long[]>();
+		for (int i = 1; i < messages.length; i++) {
+			if (messages[i].length == len0) {
+				if (k[i] != k[0]) {
+					return new ArrayList<Params>();
+				}
+				continue;
+			}
+			final long[] columns = new long[width];
+			for (int j = 0; j < width; j++) {
+				columns[j] = out(base, CRC.shift(base, 1L << j, messages[i].length)
+						^ CRC.shift(base, 1L << j, len0));
+			}
+			final long rhs = (k[i] ^ k[0]);
+			for (int bit = 0; bit < width; bit++) {
+				long coef = 0;
+				for (int j = 0; j < width; j++) {
+					coef |= (((columns[j] >>> bit) & 1) << j);
+				}
+				rows.add(new long[] { coef, (rhs >>> bit) & 1 });
+			}
+		}
+		final List<Long> inits = (rows.isEmpty() ? Arrays.asList(0L, base.mask) : solveLinear(rows, width));
+		final List<Params> found = new ArrayList<Params>();
+		for (final long init : inits) {
+			final long xorout = (k[0] ^ out(base, CRC.shift(base, init, len0)));
+			final Params tmp = new Params("CRC-" + width + "/UNKNOWN", width, poly, 0, init, refin, refout, xorout);
+			final CRC check = new GenericCalculateCRC(tmp);
+			check.update(CRC.TEST_VALUE.getBytes());
+			final Params p = withPresetName(new Params(tmp.name, width, poly, check.getValue(), init, refin,
+					refout, xorout));
+			if (matches(p, messages, crcs)) {
+				found.add(p);
+			}
+		}
+		return found;
+	}
+
+	private static final long out(final Params p, final long reg) {
+		return (p.refout ? CRC.reverse(reg, p.width) : reg);
+	}
+
+	private static final Params withPresetName(final Params p) {
+		for (final Preset preset : Preset.values()) {
+			final Params q = preset.params;
+			if ((q.width == p.width) && (q.poly == p.poly) && (q.init == p.init) && (q.refin == p.refin)
+					&& (q.refout == p.refout) && (q.xorout == p.xorout)) {
+				return q;
+			}
+		}
+		return p;
+	}
+
+	/**
+	 * Gaussian elimination in GF(2): rows of {coefficients, rhs}, return solutions (particular solution and
+	 * combinations of free variables, if not too many)
+	 */
+	private static final List<Long> solveLinear(final List<long[]> rows, final int width) {
+		final int[] pivotRow = new int[width];
+		Arrays.fill(pivotRow, -1);
+		int rank = 0;
+		for (int col = 0; col < width; col++) {
+			final long bit = (1L << col);
+			int sel = -1;
+			for (int r = rank; r < rows.size(); r++) {
+				if ((rows.get(r)[0] & bit) != 0) {
+					sel = r;
+					break;
+				}
+			}
+			if (sel < 0) {
+				continue;
+			}
+			final long[] pivot = rows.get(sel);
+			rows.set(sel, rows.get(rank));
+			rows.set(rank, pivot);
+			for (int r = 0; r < rows.size(); r++) {
+				final long[] row = rows.get(r);
+				if ((r != rank) && ((row[0] & bit) != 0)) {
+					row[0] ^= pivot[0];
+					row[1] ^= pivot[1];
+				}
+			}
+			pivotRow[col] = rank++;
+		}
+		for (int r = rank; r < rows.size(); r++) {
+			if (rows.get(r)[1] != 0) {
+				return new ArrayList<Long>(); // inconsistent
+			}
+		}
+		final List<Integer> free = new ArrayList<Integer>();
+		for (int col = 0; col < width; col++) {
+			if (pivotRow[col] < 0) {
+				free.add(col);
+			}
+		}
+		final int freeBits = Math.min(free.size(), MAX_FREE_BITS);
+		final List<Long> solutions = new ArrayList<Long>();
+		for (int m = 0; m < (1 << freeBits); m++) {
+			long x = 0;
+			for (int f = 0; f < freeBits; f++) {
+				if (((m >>> f) & 1) != 0) {
+					x |= (1L << free.get(f));
+				}
+			}
+			for (int col = 0; col < width; col++) {
+				if (pivotRow[col] >= 0) {
+					final long[] row = rows.get(pivotRow[col]);
+					final long v = (row[1] ^ (Long.bitCount(row[0] & x & ~(1L << col)) & 1));
+					x |= (v << col);
+				}
+			}
+			solutions.add(x);
+		}
+		return solutions;
+	}
+
+	// Polynomials in GF(2) as long[] (bit i of word i/64 is coefficient of x^i)
+
+	private static final int degree(final long[] a) {
+		for (int i = a.length - 1; i >= 0; i--) {
+			if (a[i] != 0) {
+				return (i << 6) + 63 - Long.numberOfLeadingZeros(a[i]);
+			}
+		}
+		return -1;
+	}
+
+	private static final boolean testBit(final long[] a, final int bit) {
+		return ((a[bit >>> 6] >>> bit) & 1) != 0;
+	}
+
+	/**
+	 * XOR bits (low count bits of value) at position
+	 */
+	private static final void xorBits(final long[] a, final int position, final long value, final int count) {
+		if (count == 0) {
+			return;
+		}
+		final long v = (value & (~0L >>> (64 - count)));
+		final int w = (position >>> 6), s = (position & 63);
+		a[w] ^= (v << s);
+		if ((s != 0) && ((s + count) > 64)) {
+			a[w + 1] ^= (v >>> (64 - s));
+		}
+	}
+
+	/**
+	 * XOR b*x^shift into a
+	 */
+	private static final void xorShifted(final long[] a, final long[] b, final int degreeB, final int shift) {
+		final int w = (shift >>> 6), s = (shift & 63);
+		final int words = (degreeB >>> 6) + 1;
+		for (int i = 0; i < words; i++) {
+			a[i + w] ^= (b[i] << s);
+			if ((s != 0) && ((i + w + 1) < a.length)) {
+				a[i + w + 1] ^= (b[i] >>> (64 - s));
+			}
+		}
+	}
+
+	private static final long[] shiftRight(final long[] a, final int bits) {
+		final long[] r = new long[a.length];
+		final int w = (bits >>> 6), s = (bits & 63);
+		for (int i = 0; (i + w) < a.length; i++) {
+			r[i] = (a[i + w] >>> s);
+			if ((s != 0) && ((i + w + 1) < a.length)) {
+				r[i] |= (a[i + w + 1] << (64 - s));
+			}
+		}
+		return r;
+	}
+
+	/**
+	 * Reduce r modulo b in place, returning quotient if needed
+	 */
+	private static final void reduce(final long[] r, final long[] b, final long[] quotient) {
+		final int db = degree(b);
+		for (int d = degree(r); d >= db; d--) {
+			if (testBit(r, d)) {
+				xorShifted(r, b, db, d - db);
+				if (quotient != null) {
+					quotient[(d - db) >>> 6] |= (1L << (d - db));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Return quotient a/b if b divides a, null otherwise (scratch holds remainder)
+	 */
+	private static final long[] divide(final long[] a, final long[] b, final long[] scratch) {
+		System.arraycopy(a, 0, scratch, 0, a.length);
+		final long[] quotient = new long[a.length];
+		reduce(scratch, b, quotient);
+		return ((degree(scratch) < 0) ? quotient : null);
+	}
+
+	private static final long[] gcd(long[] a, long[] b) {
+		a = a.clone();
+		b = b.clone();
+		while (degree(b) >= 0) {
+			reduce(a, b, null);
+			final long[] t = a;
+			a = b;
+			b = t;
+		}
+		return a;
+	}
+
+	/**
+	 * Simple Test
+	 *
+	 * @param args ignored
+	 */
+	public static void main(final String[] args) {
+		final ForkJoinPool pool = ForkJoinPool.commonPool();
+		final Random r = new Random(42);
+		final Params custom = new Params("CRC-24/CUSTOM", 24, 0x5D6DCB, 0, 0x123456, true, false, 0xABCDEF);
+		final Params[] tests = { Preset.CRC_8_MAXIM_DOW.params, Preset.CRC_12_UMTS.params,
+				Preset.CRC_16_MODBUS.params, Preset.CRC_32_ISO_HDLC.params, Preset.CRC_64_XZ.params, custom };
+		for (final Params p : tests) {
+			System.out.println("Testing: " + p.name);
+			final int[] lengths = { 20, 20, 20, 20, 33, 33, 47 };
+			final byte[][] messages = new byte[lengths.length][];
+			final long[] crcs = new long[lengths.length];
+			final CRC crc = new GenericCalculateCRC(p);
+			for (int i = 0; i < lengths.length; i++) {
+				messages[i] = new byte[lengths[i]];
+				r.nextBytes(messages[i]);
+				crc.reset();
+				crc.update(messages[i]);
+				crcs[i] = crc.getValue();
+			}
+			final List<Preset> presets = identifyPresets(messages, crcs, pool);
+			if ((p != custom) && !presets.contains(Preset.valueOf(p.name.replaceAll("[^A-Z0-9]", "_")))) {
+				throw new InvalidParameterException("Preset not identified: " + p.name + " found: " + presets);
+			}
+			boolean found = false;
+			for (final Params s : search(p.width, messages, crcs, pool)) {
+				System.out.println("Found: " + s.name + " poly=" + Long.toHexString(s.poly) //
+						+ " init=" + Long.toHexString(s.init) + " refin=" + s.refin + " refout=" + s.refout //
+						+ " xorout=" + Long.toHexString(s.xorout));
+				found |= ((s.poly == p.poly) && (s.init == p.init) && (s.xorout == p.xorout) //
+						&& (s.refin == p.refin) && (s.refout == p.refout));
+			}
+			if (!found) {
+				throw new InvalidParameterException("Params not found: " + p.name);
+			}
+		}
+		System.out.println("DONE: All right!");
+	}
+}
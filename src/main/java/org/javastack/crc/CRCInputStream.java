@@ -0,0 +1,152 @@
+package org.javastack.crc;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.InvalidParameterException;
+import java.util.Random;
+
+/**
+ * InputStream that updates a {@link Checksum} with the data read through it (bulk updates). Skipped bytes are read
+ * and checksummed too, mark/reset is not supported.
+ *
+ * @see CRCOutputStream
+ * @see CRCReadableByteChannel
+ */
+public class CRCInputStream extends FilterInputStream {
+	private static final int BUFFER_SIZE = 8192;
+
+	private final Checksum crc;
+	private byte[] buffer = null;
+
+	/**
+	 * Create a checksumming stream
+	 *
+	 * @param in input stream
+	 * @param crc checksum to update
+	 */
+	public CRCInputStream(final InputStream in, final Checksum crc) {
+		super(in);
+		this.crc = crc;
+	}
+
+	/**
+	 * Return checksum updated by this stream
+	 *
+	 * @return checksum
+	 */
+	public Checksum getChecksum() {
+		return crc;
+	}
+
+	@Override
+	public int read() throws IOException {
+		final int b = in.read();
+		if (b >= 0) {
+			crc.update(b);
+		}
+		return b;
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len) throws IOException {
+		final int n = in.read(b, off, len);
+		if (n > 0) {
+			crc.update(b, off, n);
+		}
+		return n;
+	}
+
+	@Override
+	public long skip(final long n) throws IOException {
+		final byte[] buf = buffer();
+		long skipped = 0;
+		while (skipped < n) {
+			final int len = read(buf, 0, (int) Math.min(buf.length, n - skipped));
+			if (len < 0) {
+				break;
+			}
+			skipped += len;
+		}
+		return skipped;
+	}
+
+	/**
+	 * Read all remaining bytes of this stream and write them to output stream (checksummed). Overrides
+	 * InputStream#transferTo of Java 9+ (without annotation, source level is Java 8).
+	 *
+	 * @param out output stream
+	 * @return number of bytes transferred
+	 * @throws IOException if I/O error
+	 */
+	public long transferTo(final OutputStream out) throws IOException {
+		final byte[] buf = buffer();
+		long transferred = 0;
+		int len;
+		while ((len = read(buf, 0, buf.length)) >= 0) {
+			out.write(buf, 0, len);
+			transferred += len;
+		}
+		return transferred;
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	@Override
+	public synchronized void mark(final int readlimit) {
+	}
+
+	@Override
+	public synchronized void reset() throws IOException {
+		throw new IOException("mark/reset not supported");
+	}
+
+	private byte[] buffer() {
+		if (buffer == null) {
+			buffer = new byte[BUFFER_SIZE];
+		}
+		return buffer;
+	}
+
+	/**
+	 * Simple Test
+	 *
+	 * @param args ignored
+	 * @throws IOException if error
+	 */
+	public static void main(final String[] args) throws IOException {
+		final byte[] random = new byte[100000];
+		new Random(42).nextBytes(random);
+		final CRC ref = Preset.CRC_64_XZ.getInstance();
+		ref.update(random);
+		// InputStream: read, skip and transferTo
+		final CRCInputStream in = new CRCInputStream(new ByteArrayInputStream(random),
+				Preset.CRC_64_XZ.getInstance());
+		in.read();
+		in.read(new byte[1000]);
+		in.skip(20000);
+		final ByteArrayOutputStream copy = new ByteArrayOutputStream();
+		in.transferTo(copy);
+		in.close();
+		// OutputStream: write single bytes and blocks
+		final CRCOutputStream out = new CRCOutputStream(new ByteArrayOutputStream(),
+				Preset.CRC_64_XZ.getInstance());
+		out.write(random[0]);
+		out.write(random, 1, random.length - 1);
+		out.close();
+		if ((ref.getValue() != in.getChecksum().getValue()) || (ref.getValue() != out.getChecksum().getValue())
+				|| (copy.size() != (random.length - 21001))) {
+			throw new InvalidParameterException("Invalid stream" //
+					+ " expected: " + Long.toHexString(ref.getValue()) //
+					+ " calculated: " + Long.toHexString(in.getChecksum().getValue()) //
+					+ "/" + Long.toHexString(out.getChecksum().getValue()));
+		}
+		System.out.println("DONE: All right!");
+	}
+}
@@ -0,0 +1,47 @@
+package org.javastack.crc;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * OutputStream that updates a {@link Checksum} with the data written through it (bulk updates).
+ *
+ * @see CRCInputStream
+ * @see CRCWritableByteChannel
+ */
+public class CRCOutputStream extends FilterOutputStream {
+	private final Checksum crc;
+
+	/**
+	 * Create a checksumming stream
+	 *
+	 * @param out output stream
+	 * @param crc checksum to update
+	 */
+	public CRCOutputStream(final OutputStream out, final Checksum crc) {
+		super(out);
+		this.crc = crc;
+	}
+
+	/**
+	 * Return checksum updated by this stream
+	 *
+	 * @return checksum
+	 */
+	public Checksum getChecksum() {
+		return crc;
+	}
+
+	@Override
+	public void write(final int b) throws IOException {
+		out.write(b);
+		crc.update(b);
+	}
+
+	@Override
+	public void write(final byte[] b, final int off, final int len) throws IOException {
+		out.write(b, off, len);
+		crc.update(b, off, len);
+	}
+}
@@ -0,0 +1,187 @@
+package org.javastack.crc;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channel;
+import java.nio.channels.Channels;
+import java.nio.channels.IllegalBlockingModeException;
+import java.nio.channels.Pipe;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+import java.security.InvalidParameterException;
+import java.util.Random;
+
+/**
+ * ReadableByteChannel that updates a {@link Checksum} with the data read through it (bulk updates over the read
+ * region of the buffer, direct buffers without copy). Skipped bytes are read and checksummed too.
+ *
+ * @see CRCWritableByteChannel
+ * @see CRCInputStream
+ */
+public class CRCReadableByteChannel implements ReadableByteChannel {
+	private static final int BUFFER_SIZE = 65536;
+
+	private final ReadableByteChannel channel;
+	private final Checksum crc;
+	private ByteBuffer buffer = null;
+
+	/**
+	 * Create a checksumming channel
+	 *
+	 * @param channel input channel
+	 * @param crc checksum to update
+	 */
+	public CRCReadableByteChannel(final ReadableByteChannel channel, final Checksum crc) {
+		this.channel = channel;
+		this.crc = crc;
+	}
+
+	/**
+	 * Return checksum updated by this channel
+	 *
+	 * @return checksum
+	 */
+	public Checksum getChecksum() {
+		return crc;
+	}
+
+	@Override
+	public int read(final ByteBuffer dst) throws IOException {
+		final int position = dst.position();
+		final int n = channel.read(dst);
+		if (n > 0) {
+			final ByteBuffer read = dst.duplicate();
+			read.limit(position + n).position(position);
+			crc.update(read);
+		}
+		return n;
+	}
+
+	/**
+	 * Skip (read and checksum) bytes
+	 *
+	 * @param n number of bytes to skip
+	 * @return number of bytes skipped (less than n at end of channel)
+	 * @throws IOException if I/O error
+	 * @throws IllegalBlockingModeException if channel is in non-blocking mode
+	 */
+	public long skip(final long n) throws IOException {
+		checkBlocking(channel);
+		final ByteBuffer buf = buffer();
+		long skipped = 0;
+		while (skipped < n) {
+			buf.clear().limit((int) Math.min(buf.capacity(), n - skipped));
+			final int len = read(buf);
+			if (len <= 0) {
+				break;
+			}
+			skipped += len;
+		}
+		return skipped;
+	}
+
+	/**
+	 * Read all remaining bytes of this channel and write them to target channel (checksummed)
+	 *
+	 * @param target output channel
+	 * @return number of bytes transferred
+	 * @throws IOException if I/O error
+	 * @throws IllegalBlockingModeException if a channel is in non-blocking mode
+	 */
+	public long copyTo(final WritableByteChannel target) throws IOException {
+		checkBlocking(channel);
+		checkBlocking(target);
+		final ByteBuffer buf = buffer();
+		long transferred = 0;
+		buf.clear();
+		while (read(buf) >= 0) {
+			buf.flip();
+			while (buf.hasRemaining()) {
+				transferred += target.write(buf);
+			}
+			buf.clear();
+		}
+		return transferred;
+	}
+
+	/**
+	 * Check that channel is in blocking mode (loops over a non-blocking channel would spin)
+	 *
+	 * @param channel to check
+	 * @throws IllegalBlockingModeException if channel is in non-blocking mode
+	 */
+	static void checkBlocking(final Channel channel) throws IllegalBlockingModeException {
+		if ((channel instanceof SelectableChannel) && !((SelectableChannel) channel).isBlocking()) {
+			throw new IllegalBlockingModeException();
+		}
+	}
+
+	@Override
+	public boolean isOpen() {
+		return channel.isOpen();
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private ByteBuffer buffer() {
+		if (buffer == null) {
+			buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		}
+		return buffer;
+	}
+
+	/**
+	 * Simple Test
+	 *
+	 * @param args ignored
+	 * @throws IOException if error
+	 */
+	public static void main(final String[] args) throws IOException {
+		final byte[] random = new byte[300000];
+		new Random(42).nextBytes(random);
+		for (final Preset preset : new Preset[] { Preset.CRC_32_ISO_HDLC, Preset.CRC_64_XZ, Preset.CRC_16_ARC }) {
+			final CRC ref = preset.getInstance();
+			ref.update(random);
+			// Readable: read, skip and copyTo
+			final CRCReadableByteChannel in = new CRCReadableByteChannel(
+					Channels.newChannel(new ByteArrayInputStream(random)), preset.getInstance());
+			in.read(ByteBuffer.allocate(1000));
+			in.skip(100000);
+			final ByteArrayOutputStream copy = new ByteArrayOutputStream();
+			in.copyTo(Channels.newChannel(copy));
+			in.close();
+			// Writable: write and copyFrom
+			final CRCWritableByteChannel out = new CRCWritableByteChannel(
+					Channels.newChannel(new ByteArrayOutputStream()), preset.getInstance());
+			out.write(ByteBuffer.wrap(random, 0, 1000));
+			out.copyFrom(Channels.newChannel(new ByteArrayInputStream(random, 1000, random.length - 1000)));
+			out.close();
+			if ((ref.getValue() != in.getChecksum().getValue()) || (ref.getValue() != out.getChecksum().getValue())
+					|| (copy.size() != (random.length - 101000))) {
+				throw new InvalidParameterException("Invalid channel(" + preset.name() + ")" //
+						+ " expected: " + Long.toHexString(ref.getValue()) //
+						+ " calculated: " + Long.toHexString(in.getChecksum().getValue()) //
+						+ "/" + Long.toHexString(out.getChecksum().getValue()));
+			}
+		}
+		// Non-blocking channels are rejected (loops would spin)
+		final Pipe pipe = Pipe.open();
+		try {
+			pipe.source().configureBlocking(false);
+			new CRCReadableByteChannel(pipe.source(), Preset.CRC_32_ISCSI.getInstance()).skip(10);
+			throw new InvalidParameterException("Expected IllegalBlockingModeException");
+		} catch (IllegalBlockingModeException e) {
+			// Expected
+		} finally {
+			pipe.source().close();
+			pipe.sink().close();
+		}
+		System.out.println("DONE: All right!");
+	}
+}
@@ -0,0 +1,202 @@
+package org.javastack.crc;
+
+import java.io.ByteArrayOutputStream;
+import java.security.InvalidParameterException;
+import java.util.Random;
+
+/**
+ * Snapshot of a CRC computation (value and length of processed data) with a compact serialized form, to persist
+ * partial progress (like resumable uploads) and continue later, in any engine with the same {@link Params}.
+ * <p>
+ * Serialized form: <code>version(1) | params-hash(4) | length(varint, 1-9) | value(width/8, 1-8, big-endian)</code>,
+ * 7-22 bytes. Hash covers the algorithm (width, poly, init, refin, refout, xorout), not the name.
+ *
+ * @see CRC#getState()
+ * @see CRC#restoreState(long)
+ */
+public final class CRCState {
+	private static final int VERSION = 2;
+
+	/**
+	 * Params of CRC
+	 */
+	public final Params params;
+	/**
+	 * Value of CRC of processed data
+	 */
+	public final long value;
+	/**
+	 * Length in bytes of processed data (offset to resume)
+	 */
+	public final long length;
+
+	public CRCState(final Params params, final long value, final long length) {
+		if (length < 0) {
+			throw new InvalidParameterException("Invalid length: " + length);
+		}
+		this.params = params;
+		this.value = (value & params.mask);
+		this.length = length;
+	}
+
+	/**
+	 * Snapshot state of a CRC
+	 *
+	 * @param crc to save
+	 * @param length in bytes of data processed by crc
+	 * @return state
+	 */
+	public static CRCState of(final CRC crc, final long length) {
+		return new CRCState(crc.getParams(), crc.getState(), length);
+	}
+
+	/**
+	 * Restore this state in a CRC (of any engine with the same algorithm, name of params is ignored)
+	 *
+	 * @param crc to restore
+	 * @return length of processed data (offset to resume)
+	 * @throws InvalidParameterException if algorithm of crc is different
+	 */
+	public long restore(final CRC crc) throws InvalidParameterException {
+		if (!params.sameAlgorithm(crc.getParams())) {
+			throw new InvalidParameterException("Invalid params: " + crc.getParams().name //
+					+ " expected: " + params.name);
+		}
+		crc.restoreState(value);
+		return length;
+	}
+
+	/**
+	 * Serialize this state
+	 *
+	 * @return compact serialized form
+	 */
+	public byte[] toBytes() {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream(22);
+		out.write(VERSION);
+		final int hash = params.algorithmHash();
+		for (int i = 24; i >= 0; i -= 8) {
+			out.write(hash >>> i);
+		}
+		long len = length;
+		while ((len & ~0x7FL) != 0) {
+			out.write((int) ((len & 0x7F) | 0x80));
+			len >>>= 7;
+		}
+		out.write((int) len);
+		for (int i = ((params.width + 7) >>> 3) - 1; i >= 0; i--) {
+			out.write((int) (value >>> (i << 3)));
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Deserialize a state
+	 *
+	 * @param params of CRC
+	 * @param buf serialized form
+	 * @return state
+	 * @throws InvalidParameterException if serialized form is invalid or for other params
+	 */
+	public static CRCState fromBytes(final Params params, final byte[] buf) throws InvalidParameterException {
+		int i = 0;
+		try {
+			if (buf[i++] != VERSION) {
+				throw new InvalidParameterException("Invalid state version: " + buf[0]);
+			}
+			int hash = 0;
+			for (int k = 0; k < 4; k++) {
+				hash = (hash << 8) | (buf[i++] & 0xFF);
+			}
+			if (hash != params.algorithmHash()) {
+				throw new InvalidParameterException("Invalid state params, expected: " + params.name);
+			}
+			long length = 0;
+			for (int shift = 0;; shift += 7) {
+				final int b = buf[i++];
+				if (shift > 56) {
+					throw new InvalidParameterException("Invalid state length");
+				}
+				length |= ((long) (b & 0x7F) << shift);
+				if ((b & 0x80) == 0) {
+					break;
+				}
+			}
+			long value = 0;
+			for (int k = (params.width + 7) >>> 3; k > 0; k--) {
+				value = (value << 8) | (buf[i++] & 0xFF);
+			}
+			if (i != buf.length) {
+				throw new InvalidParameterException("Invalid state size: " + buf.length);
+			}
+			return new CRCState(params, value, length);
+		} catch (ArrayIndexOutOfBoundsException e) {
+			throw new InvalidParameterException("Invalid state size: " + buf.length);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return params.name + ": value=" + Long.toHexString(value) + " length=" + length;
+	}
+
+	/**
+	 * Simple Test
+	 *
+	 * @param args ignored
+	 */
+	public static void main(final String[] args) {
+		final byte[] random = new byte[100003];
+		new Random(42).nextBytes(random);
+		final int split = 77777;
+		for (final Preset preset : Preset.values()) {
+			System.out.println("Testing: " + preset.name());
+			final CRC ref = new GenericCalculateCRC(preset.params);
+			ref.update(random);
+			for (final Engine save : Engine.values()) {
+				final CRC crc = preset.getInstance(save);
+				crc.update(random, 0, split);
+				final byte[] saved = CRCState.of(crc, split).toBytes();
+				for (final Engine resume : Engine.values()) {
+					final CRC next = preset.getInstance(resume);
+					next.update(random, 0, 5); // garbage before restore
+					final int offset = (int) CRCState.fromBytes(preset.params, saved).restore(next);
+					next.update(random, offset, random.length - offset);
+					if (ref.getValue() != next.getValue()) {
+						throw new InvalidParameterException("Invalid state(" + preset.name() + ")" //
+								+ " engines: " + save + "/" + resume //
+								+ " expected: " + Long.toHexString(ref.getValue()) //
+								+ " calculated: " + Long.toHexString(next.getValue()));
+					}
+				}
+			}
+		}
+		// Same algorithm with other name (custom params equal to a preset)
+		final Params p = Preset.CRC_32_ISCSI.params;
+		final Params alias = new Params("MY-CRC", p.width, p.poly, p.check, p.init, p.refin, p.refout, p.xorout);
+		final CRC half = new GenericCalculateCRC(p);
+		half.update(random, 0, split);
+		final CRC other = new GenericCalculateCRC(alias);
+		CRCState.fromBytes(alias, CRCState.of(half, split).toBytes()).restore(other);
+		other.update(random, split, random.length - split);
+		if (other.getValue() != Preset.CRC_32_ISCSI.checksum(random)) {
+			throw new InvalidParameterException("Invalid state(alias)");
+		}
+		final CRC[] classes = { new CRC32(), new CRC32C(), new CRC64(), new CRC16_XMODEM(), new CRC8_DVB_S2() };
+		for (final CRC crc : classes) {
+			final CRC ref = new GenericCalculateCRC(crc.getParams());
+			ref.update(random);
+			crc.update(random, 0, split);
+			final long state = crc.getState();
+			crc.reset();
+			crc.restoreState(state);
+			crc.update(random, split, random.length - split);
+			if (ref.getValue() != crc.getValue()) {
+				throw new InvalidParameterException("Invalid state(" + crc.getClass().getSimpleName() + ")" //
+						+ " expected: " + Long.toHexString(ref.getValue()) //
+						+ " calculated: " + Long.toHexString(crc.getValue()));
+			}
+		}
+		System.out.println("DONE: All right!");
+	}
+}
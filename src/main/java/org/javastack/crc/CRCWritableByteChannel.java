@@ -0,0 +1,90 @@
+package org.javastack.crc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.IllegalBlockingModeException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * WritableByteChannel that updates a {@link Checksum} with the data written through it (bulk updates over the
+ * written region of the buffer, direct buffers without copy).
+ *
+ * @see CRCReadableByteChannel
+ * @see CRCOutputStream
+ */
+public class CRCWritableByteChannel implements WritableByteChannel {
+	private static final int BUFFER_SIZE = 65536;
+
+	private final WritableByteChannel channel;
+	private final Checksum crc;
+	private ByteBuffer buffer = null;
+
+	/**
+	 * Create a checksumming channel
+	 *
+	 * @param channel output channel
+	 * @param crc checksum to update
+	 */
+	public CRCWritableByteChannel(final WritableByteChannel channel, final Checksum crc) {
+		this.channel = channel;
+		this.crc = crc;
+	}
+
+	/**
+	 * Return checksum updated by this channel
+	 *
+	 * @return checksum
+	 */
+	public Checksum getChecksum() {
+		return crc;
+	}
+
+	@Override
+	public int write(final ByteBuffer src) throws IOException {
+		final int position = src.position();
+		final int n = channel.write(src);
+		if (n > 0) {
+			final ByteBuffer written = src.duplicate();
+			written.limit(position + n).position(position);
+			crc.update(written);
+		}
+		return n;
+	}
+
+	/**
+	 * Read all remaining bytes from source channel and write them to this channel (checksummed)
+	 *
+	 * @param src source channel
+	 * @return number of bytes transferred
+	 * @throws IOException if I/O error
+	 * @throws IllegalBlockingModeException if a channel is in non-blocking mode
+	 */
+	public long copyFrom(final ReadableByteChannel src) throws IOException {
+		CRCReadableByteChannel.checkBlocking(channel);
+		CRCReadableByteChannel.checkBlocking(src);
+		if (buffer == null) {
+			buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		}
+		long transferred = 0;
+		buffer.clear();
+		while (src.read(buffer) >= 0) {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				transferred += write(buffer);
+			}
+			buffer.clear();
+		}
+		return transferred;
+	}
+
+	@Override
+	public boolean isOpen() {
+		return channel.isOpen();
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
@@ -1,5 +1,7 @@
 package org.javastack.crc;
 
+import java.nio.ByteBuffer;
+
 /**
  * Some addons over standard {@link java.util.zip.Checksum}
  */
@@ -18,6 +20,32 @@ public interface Checksum extends java.util.zip.Checksum {
 	 */
 	public void update(final byte[] buffer);
 
+	/**
+	 * Updates the current checksum with the bytes from the specified buffer (from position to limit). Upon return,
+	 * the buffer's position will be equal to its limit.
+	 * <p>
+	 * Default implementation uses backing array of heap buffers and copies other buffers through a small byte
+	 * array, so existing implementations only need {@link #update(byte[], int, int)}. {@link CRC} engines override
+	 * it to read direct and read-only buffers in place (without copy).
+	 * 
+	 * @param buffer the ByteBuffer to update the checksum with
+	 */
+	public default void update(final ByteBuffer buffer) {
+		final int position = buffer.position();
+		final int limit = buffer.limit();
+		if (buffer.hasArray()) {
+			update(buffer.array(), buffer.arrayOffset() + position, limit - position);
+			buffer.position(limit);
+			return;
+		}
+		final byte[] b = new byte[Math.min(limit - position, 4096)];
+		while (buffer.hasRemaining()) {
+			final int len = Math.min(buffer.remaining(), b.length);
+			buffer.get(b, 0, len);
+			update(b, 0, len);
+		}
+	}
+
 	/**
 	 * Return CRC definition parameters
 	 * 
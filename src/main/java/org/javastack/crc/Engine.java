@@ -0,0 +1,105 @@
+package org.javastack.crc;
+
+/**
+ * Available CRC engines for a {@link Preset} or {@link Params}.
+ * 
+ * @see Preset#getInstance(Engine)
+ */
+public enum Engine {
+	/**
+	 * Calculated just-in-time, bit by bit, without lookup-tables (slow)
+	 * 
+	 * @see GenericCalculateCRC
+	 */
+	CALCULATE,
+	/**
+	 * Half-byte lookup-table, two lookups per byte (16 entries), for many CRCs in use with a small cache footprint
+	 * 
+	 * @see GenericNibbleTableCRC
+	 */
+	NIBBLE,
+	/**
+	 * Classic lookup-table, one byte per iteration (256 entries), specialized by width and reflection. CRCs
+	 * supported by JDK intrinsics (CRC-32/ISO-HDLC, CRC-32/ISCSI and variants) are delegated to them.
+	 * 
+	 * @see GenericLookupTableCRC
+	 */
+	TABLE,
+	/**
+	 * Slicing-by-8 lookup-tables, 8 bytes per iteration in bulk updates (8 x 256 entries)
+	 * 
+	 * @see GenericLookupTableCRC
+	 */
+	SLICING_8,
+	/**
+	 * Slicing-by-16 lookup-tables, 16 bytes per iteration in bulk updates (16 x 256 entries)
+	 * 
+	 * @see GenericLookupTableCRC
+	 */
+	SLICING_16,
+	/**
+	 * Folding of 4 interleaved lanes with Slicing-by-8 tables, for large buffers
+	 * 
+	 * @see FoldingCRC
+	 */
+	FOLDING,
+	/**
+	 * Fastest available for bulk updates: JDK intrinsics if supported, {@link #SLICING_8} otherwise
+	 */
+	AUTO;
+
+	/**
+	 * Return a CRC instance of this engine
+	 * 
+	 * @param p params of CRC
+	 * @return crc instance
+	 */
+	public CRC getInstance(final Params p) {
+		switch (this) {
+			case CALCULATE:
+				return new GenericCalculateCRC(p);
+			case NIBBLE:
+				return new GenericNibbleTableCRC(p);
+			case SLICING_8:
+				return new GenericLookupTableCRC(p, 8);
+			case SLICING_16:
+				return new GenericLookupTableCRC(p, 16);
+			case FOLDING:
+				return new FoldingCRC(p);
+			case AUTO: {
+				final CRC crc = IntrinsicCRC.newInstance(p);
+				return ((crc != null) ? crc : new GenericLookupTableCRC(p, 8));
+			}
+			case TABLE:
+			default: {
+				final CRC crc = IntrinsicCRC.newInstance(p);
+				return ((crc != null) ? crc : SpecializedTableCRC.newInstance(p));
+			}
+		}
+	}
+
+	/**
+	 * Return memory used by lookup-tables of this engine (tables are cached, shared by instances of same params)
+	 * 
+	 * @param p params of CRC
+	 * @return size of tables in bytes (0 for calculated and JDK intrinsics)
+	 */
+	public int tableBytes(final Params p) {
+		switch (this) {
+			case CALCULATE:
+				return 0;
+			case NIBBLE:
+				return 16 * Long.BYTES;
+			case SLICING_8:
+			case FOLDING:
+				return 8 * 256 * Long.BYTES;
+			case SLICING_16:
+				return 16 * 256 * Long.BYTES;
+			case AUTO:
+				return ((IntrinsicCRC.newInstance(p) != null) ? 0 : 8 * 256 * Long.BYTES);
+			case TABLE:
+			default:
+				return ((IntrinsicCRC.newInstance(p) != null) ? 0 : SpecializedTableCRC.tableSize(p));
+		}
+	}
+}
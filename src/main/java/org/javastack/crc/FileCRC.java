@@ -0,0 +1,275 @@
+package org.javastack.crc;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * CRC of files using memory-mapped windows (without read syscalls), the bulk engine run directly over mapped
+ * memory. Files bigger than 2GB are mapped with a sliding window, small files are read with a plain read (mapping
+ * costs more than copying them). All-zero blocks (holes of sparse files) are computed in logarithmic time.
+ *
+ * @see FileChannel#map(MapMode, long, long)
+ * @see Engine#AUTO
+ */
+public class FileCRC {
+	/**
+	 * Default size of mapped window (256MB)
+	 */
+	public static final int DEFAULT_WINDOW_SIZE = (256 << 20);
+
+	/**
+	 * Size of blocks checked for zeros (all-zero blocks are computed with {@link CRC#updateZeros(long)})
+	 */
+	static final int ZERO_BLOCK_SIZE = (64 << 10);
+
+	/**
+	 * Files smaller than this are read into a heap buffer instead of mapped (64KB)
+	 */
+	static final int MIN_MAP_SIZE = (64 << 10);
+
+	private static final Engine ENGINE = Engine.AUTO;
+
+	/**
+	 * Compute CRC of a file
+	 *
+	 * @param preset of CRC
+	 * @param file to read
+	 * @return crc value
+	 * @throws IOException if error reading file
+	 */
+	public static long compute(final Preset preset, final Path file) throws IOException {
+		final CRC crc = preset.getInstance(ENGINE);
+		update(crc, file, DEFAULT_WINDOW_SIZE);
+		return crc.getValue();
+	}
+
+	/**
+	 * Update checksum with content of a file
+	 *
+	 * @param crc to update
+	 * @param file to read
+	 * @param windowSize size of mapped window in bytes
+	 * @return number of bytes read
+	 * @throws IOException if error reading file
+	 */
+	public static long update(final Checksum crc, final Path file, final int windowSize) throws IOException {
+		if (windowSize <= 0) {
+			throw new IllegalArgumentException("Invalid windowSize: " + windowSize);
+		}
+		try (FileChannel fc = FileChannel.open(file, StandardOpenOption.READ)) {
+			final long size = fc.size();
+			if (size < MIN_MAP_SIZE) {
+				update(crc, read(fc, (int) size));
+				return size;
+			}
+			long position = 0;
+			while (position < size) {
+				final long len = Math.min(size - position, windowSize);
+				final MappedByteBuffer window = fc.map(MapMode.READ_ONLY, position, len);
+				update(crc, window);
+				position += len;
+			}
+			return size;
+		}
+	}
+
+	/**
+	 * Update several CRCs with content of a file in a single pass, all-zero blocks are computed in logarithmic time
+	 *
+	 * @param multi crcs to update
+	 * @param file to read
+	 * @param windowSize size of mapped window in bytes
+	 * @return number of bytes read
+	 * @throws IOException if error reading file
+	 * @see MultiCRC
+	 */
+	public static long update(final MultiCRC multi, final Path file, final int windowSize) throws IOException {
+		if (windowSize <= 0) {
+			throw new IllegalArgumentException("Invalid windowSize: " + windowSize);
+		}
+		try (FileChannel fc = FileChannel.open(file, StandardOpenOption.READ)) {
+			final long size = fc.size();
+			if (size < MIN_MAP_SIZE) {
+				update(multi, read(fc, (int) size));
+				return size;
+			}
+			long position = 0;
+			while (position < size) {
+				final long len = Math.min(size - position, windowSize);
+				update(multi, fc.map(MapMode.READ_ONLY, position, len));
+				position += len;
+			}
+			return size;
+		}
+	}
+
+	private static ByteBuffer read(final FileChannel fc, final int size) throws IOException {
+		final ByteBuffer buffer = ByteBuffer.allocate(size);
+		while (buffer.hasRemaining()) {
+			if (fc.read(buffer) < 0) {
+				break;
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * Update checksum with remaining bytes of buffer, all-zero blocks (holes of sparse files, preallocated space)
+	 * are computed in logarithmic time with {@link CRC#updateZeros(long)}
+	 *
+	 * @param crc to update
+	 * @param buffer input (position is moved to limit)
+	 */
+	static void update(final Checksum crc, final ByteBuffer buffer) {
+		if (!(crc instanceof CRC)) {
+			crc.update(buffer);
+			return;
+		}
+		final CRC c = (CRC) crc;
+		final int limit = buffer.limit();
+		long zeros = 0;
+		for (int offset = buffer.position(); offset < limit; offset += ZERO_BLOCK_SIZE) {
+			final int end = Math.min(limit, offset + ZERO_BLOCK_SIZE);
+			if (isZero(buffer, offset, end)) {
+				zeros += (end - offset);
+				continue;
+			}
+			if (zeros > 0) {
+				c.updateZeros(zeros);
+				zeros = 0;
+			}
+			buffer.limit(end).position(offset);
+			c.update(buffer);
+			buffer.limit(limit);
+		}
+		if (zeros > 0) {
+			c.updateZeros(zeros);
+		}
+		buffer.position(limit);
+	}
+
+	/**
+	 * Update several CRCs with remaining bytes of buffer, all-zero blocks are computed in logarithmic time with
+	 * {@link MultiCRC#updateZeros(long)}
+	 *
+	 * @param multi crcs to update
+	 * @param buffer input (position is moved to limit)
+	 */
+	static void update(final MultiCRC multi, final ByteBuffer buffer) {
+		final int limit = buffer.limit();
+		long zeros = 0;
+		for (int offset = buffer.position(); offset < limit; offset += ZERO_BLOCK_SIZE) {
+			final int end = Math.min(limit, offset + ZERO_BLOCK_SIZE);
+			if (isZero(buffer, offset, end)) {
+				zeros += (end - offset);
+				continue;
+			}
+			if (zeros > 0) {
+				multi.updateZeros(zeros);
+				zeros = 0;
+			}
+			buffer.limit(end).position(offset);
+			multi.update(buffer);
+			buffer.limit(limit);
+		}
+		if (zeros > 0) {
+			multi.updateZeros(zeros);
+		}
+		buffer.position(limit);
+	}
+
+	/**
+	 * Check if a block is all-zero. The first, middle and last words are probed before the full scan, so dense
+	 * blocks exit after a few reads instead of a second pass over the data.
+	 */
+	private static boolean isZero(final ByteBuffer buffer, int offset, final int end) {
+		if (end - offset >= 8) {
+			if ((buffer.getLong(offset) != 0) || (buffer.getLong(end - 8) != 0)
+					|| (buffer.getLong(offset + (((end - offset) >>> 1) & ~7)) != 0)) {
+				return false;
+			}
+		}
+		for (; end - offset >= 8; offset += 8) {
+			if (buffer.getLong(offset) != 0) {
+				return false;
+			}
+		}
+		for (; offset < end; offset++) {
+			if (buffer.get(offset) != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Simple Test
+	 *
+	 * @param args ignored
+	 * @throws IOException if error
+	 */
+	public static void main(final String[] args) throws IOException {
+		final byte[] random = new byte[(1 << 20) + 13];
+		new Random(42).nextBytes(random);
+		final Path tmp = Files.createTempFile("crc-", ".bin");
+		try {
+			Files.write(tmp, random);
+			final MultiCRC multi = MultiCRC.all();
+			update(multi, tmp, 4093);
+			for (final Preset preset : Preset.values()) {
+				final CRC ref = preset.getInstance(true);
+				ref.update(random);
+				final CRC crc = preset.getInstance(ENGINE);
+				update(crc, tmp, 4093); // odd window to test sliding
+				if ((ref.getValue() != crc.getValue()) || (ref.getValue() != compute(preset, tmp))
+						|| (ref.getValue() != multi.getValue(preset))) {
+					throw new RuntimeException("Invalid file(" + preset.name() + ")" //
+							+ " expected: " + Long.toHexString(ref.getValue()) //
+							+ " calculated: " + Long.toHexString(crc.getValue()));
+				}
+			}
+			// Small file: plain read
+			Files.write(tmp, Arrays.copyOf(random, MIN_MAP_SIZE - 1));
+			multi.reset();
+			update(multi, tmp, DEFAULT_WINDOW_SIZE);
+			for (final Preset preset : Preset.values()) {
+				final CRC ref = preset.getInstance(true);
+				ref.update(random, 0, MIN_MAP_SIZE - 1);
+				if ((ref.getValue() != compute(preset, tmp)) || (ref.getValue() != multi.getValue(preset))) {
+					throw new RuntimeException("Invalid small file(" + preset.name() + ")");
+				}
+			}
+			// Sparse file: holes and zero blocks
+			try (RandomAccessFile raf = new RandomAccessFile(tmp.toFile(), "rw")) {
+				raf.setLength((3L << 20) + 17);
+				raf.seek(ZERO_BLOCK_SIZE * 5 + 3);
+				raf.write(random, 0, 1000);
+				raf.seek(ZERO_BLOCK_SIZE * 9 + 1001); // not in probed words
+				raf.write(0x5A);
+			}
+			final byte[] sparse = Files.readAllBytes(tmp);
+			multi.reset();
+			update(multi, tmp, DEFAULT_WINDOW_SIZE);
+			for (final Preset preset : Preset.values()) {
+				final CRC ref = preset.getInstance(true);
+				ref.update(sparse);
+				if ((ref.getValue() != compute(preset, tmp)) || (ref.getValue() != multi.getValue(preset))) {
+					throw new RuntimeException("Invalid sparse file(" + preset.name() + ")");
+				}
+			}
+		} finally {
+			Files.delete(tmp);
+		}
+		System.out.println("DONE: All right!");
+	}
+}
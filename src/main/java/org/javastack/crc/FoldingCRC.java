@@ -0,0 +1,240 @@
+package org.javastack.crc;
+
+import static org.javastack.crc.GenericLookupTableCRC.getLongBE;
+import static org.javastack.crc.GenericLookupTableCRC.getLongLE;
+import static org.javastack.crc.GenericLookupTableCRC.sliceNormal8;
+import static org.javastack.crc.GenericLookupTableCRC.sliceReflected8;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.InvalidParameterException;
+import java.util.Random;
+
+/**
+ * Generic CRC for large buffers, folding 4 independent lanes.
+ * <p>
+ * Each block is split in 4 lanes computed interleaved in the same loop with Slicing-by-8 tables (32 bytes per
+ * step, 4 independent dependency chains), then lanes are folded with constants x^(8*n) modulo poly derived from
+ * {@link Params}. Small inputs use Slicing-by-8 directly. Output is the same as {@link GenericLookupTableCRC}.
+ *
+ * @see Engine#FOLDING
+ * @see GenericLookupTableCRC
+ */
+public class FoldingCRC extends CRC {
+	private static final int LANES = 4;
+	private static final int LANE_SIZE = 4096;
+	private static final int BLOCK_SIZE = LANES * LANE_SIZE;
+
+	private final Params p;
+	private final long[][] t;
+	/**
+	 * Fold constants: x^(8*LANE_SIZE*k) modulo poly (non-reflected), k=1..3
+	 */
+	private final long k1, k2, k3;
+	/**
+	 * Non-reflected CRCs are processed left-aligned in a 64 bits register (MSB of crc at bit 63)
+	 */
+	private final int shift;
+	/**
+	 * Byte order of words (little-endian for reflected)
+	 */
+	private final ByteOrder order;
+	private final long init;
+	private long crc;
+
+	public FoldingCRC(final Params p) {
+		this.p = p;
+		this.t = GenericLookupTableCRC.tables(p, 8);
+		this.k1 = CRC.shift(p, 1, LANE_SIZE);
+		this.k2 = CRC.shift(p, 1, LANE_SIZE * 2L);
+		this.k3 = CRC.shift(p, 1, LANE_SIZE * 3L);
+		this.shift = (p.refin ? 0 : 64 - p.width);
+		this.order = (p.refin ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+		this.init = (p.refin) ? reverse(p.init, p.width) : (p.init << shift);
+		this.reset();
+	}
+
+	@Override
+	public void reset() {
+		crc = init;
+	}
+
+	@Override
+	public void update(final int b) {
+		if (p.refin) {
+			crc = ((crc >>> 8) ^ t[0][(b ^ (int) crc) & 0xFF]);
+		} else {
+			crc = t[0][(b ^ (int) (crc >>> 56)) & 0xFF] ^ (crc << 8);
+		}
+	}
+
+	@Override
+	public void update(final byte[] buffer, int offset, int length) {
+		final long[] t0 = t[0];
+		long c = crc;
+		if (p.refin) {
+			for (; length >= BLOCK_SIZE; length -= BLOCK_SIZE, offset += BLOCK_SIZE) {
+				long c0 = c, c1 = 0, c2 = 0, c3 = 0;
+				for (int i = offset, end = offset + LANE_SIZE; i < end; i += 8) {
+					c0 = sliceReflected8(t, c0 ^ getLongLE(buffer, i));
+					c1 = sliceReflected8(t, c1 ^ getLongLE(buffer, i + LANE_SIZE));
+					c2 = sliceReflected8(t, c2 ^ getLongLE(buffer, i + LANE_SIZE * 2));
+					c3 = sliceReflected8(t, c3 ^ getLongLE(buffer, i + LANE_SIZE * 3));
+				}
+				c = fold(c0, c1, c2, c3);
+			}
+			for (; length >= 8; length -= 8, offset += 8) {
+				c = sliceReflected8(t, c ^ getLongLE(buffer, offset));
+			}
+			for (; length > 0; length--) {
+				c = ((c >>> 8) ^ t0[(buffer[offset++] ^ (int) c) & 0xFF]);
+			}
+		} else {
+			for (; length >= BLOCK_SIZE; length -= BLOCK_SIZE, offset += BLOCK_SIZE) {
+				long c0 = c, c1 = 0, c2 = 0, c3 = 0;
+				for (int i = offset, end = offset + LANE_SIZE; i < end; i += 8) {
+					c0 = sliceNormal8(t, c0 ^ getLongBE(buffer, i));
+					c1 = sliceNormal8(t, c1 ^ getLongBE(buffer, i + LANE_SIZE));
+					c2 = sliceNormal8(t, c2 ^ getLongBE(buffer, i + LANE_SIZE * 2));
+					c3 = sliceNormal8(t, c3 ^ getLongBE(buffer, i + LANE_SIZE * 3));
+				}
+				c = fold(c0, c1, c2, c3);
+			}
+			for (; length >= 8; length -= 8, offset += 8) {
+				c = sliceNormal8(t, c ^ getLongBE(buffer, offset));
+			}
+			for (; length > 0; length--) {
+				c = t0[(buffer[offset++] ^ (int) (c >>> 56)) & 0xFF] ^ (c << 8);
+			}
+		}
+		crc = c;
+	}
+
+	@Override
+	public void update(final ByteBuffer buffer) {
+		if (buffer.hasArray()) {
+			super.update(buffer);
+			return;
+		}
+		// Direct or read-only: read in place, a word at a time
+		final ByteBuffer in = buffer.duplicate().order(order);
+		crc = updateWords(crc, in, buffer.position(), buffer.limit());
+		buffer.position(buffer.limit());
+	}
+
+	/**
+	 * Folding over direct/read-only buffer (absolute positions), words are read in the byte order of the CRC
+	 *
+	 * @param c current register
+	 * @param in buffer with {@link #order}
+	 * @param offset start position
+	 * @param limit end position
+	 * @return new register
+	 */
+	private final long updateWords(long c, final ByteBuffer in, int offset, final int limit) {
+		final long[] t0 = t[0];
+		if (p.refin) {
+			for (; limit - offset >= BLOCK_SIZE; offset += BLOCK_SIZE) {
+				long c0 = c, c1 = 0, c2 = 0, c3 = 0;
+				for (int i = offset, end = offset + LANE_SIZE; i < end; i += 8) {
+					c0 = sliceReflected8(t, c0 ^ in.getLong(i));
+					c1 = sliceReflected8(t, c1 ^ in.getLong(i + LANE_SIZE));
+					c2 = sliceReflected8(t, c2 ^ in.getLong(i + LANE_SIZE * 2));
+					c3 = sliceReflected8(t, c3 ^ in.getLong(i + LANE_SIZE * 3));
+				}
+				c = fold(c0, c1, c2, c3);
+			}
+			for (; limit - offset >= 8; offset += 8) {
+				c = sliceReflected8(t, c ^ in.getLong(offset));
+			}
+			for (; offset < limit; offset++) {
+				c = ((c >>> 8) ^ t0[(in.get(offset) ^ (int) c) & 0xFF]);
+			}
+		} else {
+			for (; limit - offset >= BLOCK_SIZE; offset += BLOCK_SIZE) {
+				long c0 = c, c1 = 0, c2 = 0, c3 = 0;
+				for (int i = offset, end = offset + LANE_SIZE; i < end; i += 8) {
+					c0 = sliceNormal8(t, c0 ^ in.getLong(i));
+					c1 = sliceNormal8(t, c1 ^ in.getLong(i + LANE_SIZE));
+					c2 = sliceNormal8(t, c2 ^ in.getLong(i + LANE_SIZE * 2));
+					c3 = sliceNormal8(t, c3 ^ in.getLong(i + LANE_SIZE * 3));
+				}
+				c = fold(c0, c1, c2, c3);
+			}
+			for (; limit - offset >= 8; offset += 8) {
+				c = sliceNormal8(t, c ^ in.getLong(offset));
+			}
+			for (; offset < limit; offset++) {
+				c = t0[(in.get(offset) ^ (int) (c >>> 56)) & 0xFF] ^ (c << 8);
+			}
+		}
+		return c;
+	}
+
+	/**
+	 * Fold 4 lanes registers into one
+	 */
+	private final long fold(final long c0, final long c1, final long c2, final long c3) {
+		final long r = multiply(p, toNormal(c0), k3) //
+				^ multiply(p, toNormal(c1), k2) //
+				^ multiply(p, toNormal(c2), k1) //
+				^ toNormal(c3);
+		return (p.refin ? reverse(r, p.width) : (r << shift));
+	}
+
+	private final long toNormal(final long c) {
+		return (p.refin ? reverse(c, p.width) : (c >>> shift));
+	}
+
+	@Override
+	public void restoreState(final long state) {
+		final long reg = toRegister(p, state);
+		crc = (p.refin) ? reverse(reg, p.width) : (reg << shift);
+	}
+
+	@Override
+	public long getValue() {
+		final long reg = (crc >>> shift);
+		return (((p.refout != p.refin) ? reverse(reg, p.width) : reg) ^ p.xorout) & p.mask;
+	}
+
+	@Override
+	public Params getParams() {
+		return p;
+	}
+
+	/**
+	 * Simple Test
+	 *
+	 * @param args ignored
+	 */
+	public static void main(final String[] args) {
+		final byte[] random = new byte[BLOCK_SIZE * 3 + 1021];
+		new Random(42).nextBytes(random);
+		final ByteBuffer direct = ByteBuffer.allocateDirect(random.length);
+		direct.put(random, 3, random.length - 3).flip();
+		for (final Preset preset : Preset.values()) {
+			System.out.println("Testing: " + preset.name());
+			final CRC crc = new FoldingCRC(preset.params);
+			crc.update(CRC.TEST_VALUE.getBytes());
+			if (preset.params.check != crc.getValue()) {
+				throw new InvalidParameterException("Invalid check(" + preset.name() + ")" //
+						+ " expected: " + Long.toHexString(preset.params.check) //
+						+ " calculated: " + Long.toHexString(crc.getValue()));
+			}
+			final CRC ref = new GenericLookupTableCRC(preset.params);
+			ref.update(random, 3, random.length - 3);
+			crc.reset();
+			crc.update(random, 3, random.length - 3);
+			final long bulk = crc.getValue();
+			crc.reset();
+			crc.update(direct.duplicate());
+			if ((ref.getValue() != bulk) || (ref.getValue() != crc.getValue())) {
+				throw new InvalidParameterException("Invalid bulk(" + preset.name() + ")" //
+						+ " expected: " + Long.toHexString(ref.getValue()) //
+						+ " calculated: " + Long.toHexString(bulk) + "/" + Long.toHexString(crc.getValue()));
+			}
+		}
+		System.out.println("DONE: All right!");
+	}
+}
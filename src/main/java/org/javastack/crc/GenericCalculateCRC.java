@@ -1,5 +1,9 @@
 package org.javastack.crc;
 
+import java.nio.ByteBuffer;
+import java.security.InvalidParameterException;
+import java.util.Random;
+
 /**
  * Generic CRC calculated just-in-time, without lookup-tables, is slow, but works.
  * 
@@ -38,6 +42,11 @@ public class GenericCalculateCRC extends CRC {
 		}
 	}
 
+	@Override
+	public void restoreState(final long state) {
+		crc = toRegister(p, state);
+	}
+
 	@Override
 	public long getValue() {
 		return (((p.refout ? reverse(crc, p.width) : crc) ^ p.xorout) & p.mask);
@@ -54,9 +63,27 @@ public class GenericCalculateCRC extends CRC {
 	 * @param args ignored
 	 */
 	public static void main(final String[] args) {
+		// Direct and read-only buffers are copied in chunks (bigger than scratch)
+		final byte[] random = new byte[10003];
+		new Random(42).nextBytes(random);
+		final ByteBuffer direct = ByteBuffer.allocateDirect(random.length);
+		direct.put(random).flip();
 		for (final Preset preset : Preset.values()) {
 			System.out.println("Testing: " + preset.name());
 			preset.params.test();
+			final CRC crc = new GenericCalculateCRC(preset.params);
+			crc.update(random);
+			final long want = crc.getValue();
+			crc.reset();
+			crc.update(direct.duplicate());
+			final long calcDirect = crc.getValue();
+			crc.reset();
+			crc.update(ByteBuffer.wrap(random).asReadOnlyBuffer());
+			if ((want != calcDirect) || (want != crc.getValue())) {
+				throw new InvalidParameterException("Invalid buffer(" + preset.name() + ")" //
+						+ " expected: " + Long.toHexString(want) //
+						+ " calculated: " + Long.toHexString(calcDirect) + "/" + Long.toHexString(crc.getValue()));
+			}
 		}
 		System.out.println("DONE: All right!");
 	}
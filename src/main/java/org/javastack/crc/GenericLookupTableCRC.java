@@ -1,26 +1,55 @@
 package org.javastack.crc;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.security.InvalidParameterException;
-import java.util.HashMap;
+import java.util.Random;
 
 /**
  * Generic CRC based on lookup tables for speed-up.
- * 
+ * <p>
+ * Bulk updates can use Slicing-by-8 or Slicing-by-16 (8 or 16 bytes per iteration) with extra tables derived
+ * from the base table.
+ *
  * @see Preset
  * @see Params
  * @see CRC
+ * @see Engine
  */
 public class GenericLookupTableCRC extends CRC {
-	private static final HashMap<Params, long[]> CACHE = new HashMap<Params, long[]>();
+	private static final TableCache<long[][]> CACHE = new TableCache<long[][]>();
 	private final Params p;
+	private final long[][] tables;
 	private final long[] table;
+	private final int slices;
+	/**
+	 * Non-reflected CRCs are processed left-aligned in a 64 bits register (MSB of crc at bit 63)
+	 */
+	private final int shift;
 	private final long init;
 	private long crc;
 
 	public GenericLookupTableCRC(final Params p) {
+		this(p, 1);
+	}
+
+	/**
+	 * Create a lookup-table CRC
+	 *
+	 * @param p params of CRC
+	 * @param slices 1 (classic table), 8 (Slicing-by-8) or 16 (Slicing-by-16)
+	 * @throws InvalidParameterException if slices is not supported
+	 */
+	public GenericLookupTableCRC(final Params p, final int slices) throws InvalidParameterException {
+		if ((slices != 1) && (slices != 8) && (slices != 16)) {
+			throw new InvalidParameterException("Invalid slices: " + slices);
+		}
 		this.p = p;
-		this.init = (p.refin) ? reverse(p.init, p.width) : p.init;
-		this.table = initTable(p);
+		this.slices = slices;
+		this.shift = (p.refin ? 0 : 64 - p.width);
+		this.init = (p.refin) ? reverse(p.init, p.width) : (p.init << shift);
+		this.tables = initTable(p, slices);
+		this.table = tables[0];
 		this.reset();
 	}
 
@@ -29,43 +58,239 @@ public class GenericLookupTableCRC extends CRC {
 		crc = init;
 	}
 
-	private static final long[] initTable(final Params p) {
-		long[] table = null;
-		synchronized (CACHE) {
-			table = CACHE.get(p);
-			if (table != null) {
-				return table;
-			}
-			final Params tableCalcParams = new Params( //
-					p.name, p.width, //
-					p.poly, p.check, 0, //
-					p.refin, p.refin, 0);
-			final CRC helper = new GenericCalculateCRC(tableCalcParams);
-			table = new long[256];
-			for (int i = 0; i < table.length; i++) {
-				helper.reset();
-				helper.update(i);
-				table[i] = helper.getValue();
-			}
-			CACHE.put(p, table);
+	private static final long[][] initTable(final Params p, final int slices) {
+		return CACHE.get(p, (cached) -> (cached.length >= slices), (k, cached) -> {
+			return deriveTables(k, (cached == null ? new long[][] { generateTable(k) } : cached), slices);
+		});
+	}
+
+	/**
+	 * Generate (without cache) base lookup-table (non-reflected are left-aligned in 64 bits)
+	 *
+	 * @param p params of CRC
+	 * @return table
+	 */
+	static final long[] generateTable(final Params p) {
+		final Params tableCalcParams = new Params( //
+				p.name, p.width, //
+				p.poly, p.check, 0, //
+				p.refin, p.refin, 0);
+		final CRC helper = new GenericCalculateCRC(tableCalcParams);
+		final int shift = (p.refin ? 0 : 64 - p.width);
+		final long[] table = new long[256];
+		for (int i = 0; i < table.length; i++) {
+			helper.reset();
+			helper.update(i);
+			table[i] = helper.getValue() << shift;
 		}
 		return table;
 	}
 
+	/**
+	 * Return base lookup-table (non-reflected are left-aligned in 64 bits)
+	 *
+	 * @param p params of CRC
+	 * @return table
+	 */
+	static final long[] table(final Params p) {
+		return initTable(p, 1)[0];
+	}
+
+	/**
+	 * Return Slicing-by-N lookup-tables (non-reflected are left-aligned in 64 bits)
+	 *
+	 * @param p params of CRC
+	 * @param slices number of tables wanted
+	 * @return tables
+	 */
+	static final long[][] tables(final Params p, final int slices) {
+		return initTable(p, slices);
+	}
+
+	/**
+	 * Derive the Slicing-by-N tables: table[k][b] is the crc of byte b followed by k zero bytes
+	 *
+	 * @param p params of CRC
+	 * @param base already calculated tables (at least the first one)
+	 * @param slices number of tables wanted
+	 * @return tables
+	 */
+	private static final long[][] deriveTables(final Params p, final long[][] base, final int slices) {
+		if (base.length >= slices) {
+			return base;
+		}
+		final long[][] tables = new long[slices][];
+		System.arraycopy(base, 0, tables, 0, base.length);
+		final long[] t0 = tables[0];
+		for (int k = base.length; k < slices; k++) {
+			final long[] prev = tables[k - 1];
+			final long[] t = new long[256];
+			for (int i = 0; i < 256; i++) {
+				final long c = prev[i];
+				if (p.refin) {
+					t[i] = (c >>> 8) ^ t0[(int) c & 0xFF];
+				} else {
+					t[i] = (c << 8) ^ t0[(int) (c >>> 56)];
+				}
+			}
+			tables[k] = t;
+		}
+		return tables;
+	}
+
 	@Override
 	public void update(final int b) {
 		if (p.refin) {
 			crc = ((crc >>> 8) ^ table[(b ^ (int) crc) & 0xFF]);
-		} else if (p.width < 8) {
-			crc = table[(b ^ (((int) crc) << (8 - p.width))) & 0xFF];
 		} else {
-			crc = table[(b ^ ((int) (crc >>> (p.width - 8)))) & 0xFF] ^ (crc << 8);
+			crc = table[(b ^ (int) (crc >>> 56)) & 0xFF] ^ (crc << 8);
+		}
+	}
+
+	@Override
+	public void update(final byte[] buffer, int offset, int length) {
+		long c = crc;
+		if (slices == 16) {
+			if (p.refin) {
+				for (; length >= 16; length -= 16, offset += 16) {
+					c = sliceReflected16(tables, c ^ getLongLE(buffer, offset), getLongLE(buffer, offset + 8));
+				}
+			} else {
+				for (; length >= 16; length -= 16, offset += 16) {
+					c = sliceNormal16(tables, c ^ getLongBE(buffer, offset), getLongBE(buffer, offset + 8));
+				}
+			}
 		}
+		if (slices >= 8) {
+			if (p.refin) {
+				for (; length >= 8; length -= 8, offset += 8) {
+					c = sliceReflected8(tables, c ^ getLongLE(buffer, offset));
+				}
+			} else {
+				for (; length >= 8; length -= 8, offset += 8) {
+					c = sliceNormal8(tables, c ^ getLongBE(buffer, offset));
+				}
+			}
+		}
+		final long[] t0 = table;
+		if (p.refin) {
+			for (; length > 0; length--) {
+				c = ((c >>> 8) ^ t0[(buffer[offset++] ^ (int) c) & 0xFF]);
+			}
+		} else {
+			for (; length > 0; length--) {
+				c = t0[(buffer[offset++] ^ (int) (c >>> 56)) & 0xFF] ^ (c << 8);
+			}
+		}
+		crc = c;
+	}
+
+	@Override
+	public void update(final ByteBuffer buffer) {
+		if (buffer.hasArray() || (slices == 1)) {
+			super.update(buffer);
+			return;
+		}
+		// Direct or read-only: read in place, a word at a time
+		final ByteBuffer in = buffer.duplicate().order(p.refin ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+		int offset = buffer.position();
+		final int limit = buffer.limit();
+		long c = crc;
+		if (slices == 16) {
+			if (p.refin) {
+				for (; limit - offset >= 16; offset += 16) {
+					c = sliceReflected16(tables, c ^ in.getLong(offset), in.getLong(offset + 8));
+				}
+			} else {
+				for (; limit - offset >= 16; offset += 16) {
+					c = sliceNormal16(tables, c ^ in.getLong(offset), in.getLong(offset + 8));
+				}
+			}
+		}
+		if (p.refin) {
+			for (; limit - offset >= 8; offset += 8) {
+				c = sliceReflected8(tables, c ^ in.getLong(offset));
+			}
+		} else {
+			for (; limit - offset >= 8; offset += 8) {
+				c = sliceNormal8(tables, c ^ in.getLong(offset));
+			}
+		}
+		crc = c;
+		for (; offset < limit; offset++) {
+			update(in.get(offset));
+		}
+		buffer.position(limit);
+	}
+
+	static final long sliceReflected8(final long[][] t, final long c) {
+		return t[7][(int) c & 0xFF] ^ t[6][(int) (c >>> 8) & 0xFF] //
+				^ t[5][(int) (c >>> 16) & 0xFF] ^ t[4][(int) (c >>> 24) & 0xFF] //
+				^ t[3][(int) (c >>> 32) & 0xFF] ^ t[2][(int) (c >>> 40) & 0xFF] //
+				^ t[1][(int) (c >>> 48) & 0xFF] ^ t[0][(int) (c >>> 56)];
+	}
+
+	static final long sliceNormal8(final long[][] t, final long c) {
+		return t[7][(int) (c >>> 56)] ^ t[6][(int) (c >>> 48) & 0xFF] //
+				^ t[5][(int) (c >>> 40) & 0xFF] ^ t[4][(int) (c >>> 32) & 0xFF] //
+				^ t[3][(int) (c >>> 24) & 0xFF] ^ t[2][(int) (c >>> 16) & 0xFF] //
+				^ t[1][(int) (c >>> 8) & 0xFF] ^ t[0][(int) c & 0xFF];
+	}
+
+	static final long sliceReflected16(final long[][] t, final long c, final long d) {
+		return t[15][(int) c & 0xFF] ^ t[14][(int) (c >>> 8) & 0xFF] //
+				^ t[13][(int) (c >>> 16) & 0xFF] ^ t[12][(int) (c >>> 24) & 0xFF] //
+				^ t[11][(int) (c >>> 32) & 0xFF] ^ t[10][(int) (c >>> 40) & 0xFF] //
+				^ t[9][(int) (c >>> 48) & 0xFF] ^ t[8][(int) (c >>> 56)] //
+				^ t[7][(int) d & 0xFF] ^ t[6][(int) (d >>> 8) & 0xFF] //
+				^ t[5][(int) (d >>> 16) & 0xFF] ^ t[4][(int) (d >>> 24) & 0xFF] //
+				^ t[3][(int) (d >>> 32) & 0xFF] ^ t[2][(int) (d >>> 40) & 0xFF] //
+				^ t[1][(int) (d >>> 48) & 0xFF] ^ t[0][(int) (d >>> 56)];
+	}
+
+	static final long sliceNormal16(final long[][] t, final long c, final long d) {
+		return t[15][(int) (c >>> 56)] ^ t[14][(int) (c >>> 48) & 0xFF] //
+				^ t[13][(int) (c >>> 40) & 0xFF] ^ t[12][(int) (c >>> 32) & 0xFF] //
+				^ t[11][(int) (c >>> 24) & 0xFF] ^ t[10][(int) (c >>> 16) & 0xFF] //
+				^ t[9][(int) (c >>> 8) & 0xFF] ^ t[8][(int) c & 0xFF] //
+				^ t[7][(int) (d >>> 56)] ^ t[6][(int) (d >>> 48) & 0xFF] //
+				^ t[5][(int) (d >>> 40) & 0xFF] ^ t[4][(int) (d >>> 32) & 0xFF] //
+				^ t[3][(int) (d >>> 24) & 0xFF] ^ t[2][(int) (d >>> 16) & 0xFF] //
+				^ t[1][(int) (d >>> 8) & 0xFF] ^ t[0][(int) d & 0xFF];
+	}
+
+	static final long getLongLE(final byte[] b, final int i) {
+		return ((b[i] & 0xFFL)) //
+				| ((b[i + 1] & 0xFFL) << 8) //
+				| ((b[i + 2] & 0xFFL) << 16) //
+				| ((b[i + 3] & 0xFFL) << 24) //
+				| ((b[i + 4] & 0xFFL) << 32) //
+				| ((b[i + 5] & 0xFFL) << 40) //
+				| ((b[i + 6] & 0xFFL) << 48) //
+				| ((b[i + 7] & 0xFFL) << 56);
+	}
+
+	static final long getLongBE(final byte[] b, final int i) {
+		return ((b[i] & 0xFFL) << 56) //
+				| ((b[i + 1] & 0xFFL) << 48) //
+				| ((b[i + 2] & 0xFFL) << 40) //
+				| ((b[i + 3] & 0xFFL) << 32) //
+				| ((b[i + 4] & 0xFFL) << 24) //
+				| ((b[i + 5] & 0xFFL) << 16) //
+				| ((b[i + 6] & 0xFFL) << 8) //
+				| ((b[i + 7] & 0xFFL));
+	}
+
+	@Override
+	public void restoreState(final long state) {
+		final long reg = toRegister(p, state);
+		crc = (p.refin) ? reverse(reg, p.width) : (reg << shift);
 	}
 
 	@Override
 	public long getValue() {
-		return (((p.refout != p.refin) ? reverse(crc, p.width) : crc) ^ p.xorout) & p.mask;
+		final long reg = (crc >>> shift);
+		return (((p.refout != p.refin) ? reverse(reg, p.width) : reg) ^ p.xorout) & p.mask;
 	}
 
 	@Override
@@ -75,19 +300,39 @@ public class GenericLookupTableCRC extends CRC {
 
 	/**
 	 * Simple Test
-	 * 
+	 *
 	 * @param args ignored
 	 */
 	public static void main(final String[] args) {
+		final byte[] random = new byte[1021];
+		new Random(42).nextBytes(random);
+		final ByteBuffer direct = ByteBuffer.allocateDirect(random.length);
+		direct.put(random, 3, random.length - 3).flip();
 		for (final Preset preset : Preset.values()) {
 			System.out.println("Testing: " + preset.name());
-			final CRC crc = new GenericLookupTableCRC(preset.params);
-			crc.update(CRC.TEST_VALUE.getBytes());
-			final long v = crc.getValue();
-			if (preset.params.check != v) {
-				throw new InvalidParameterException("Invalid check(" + preset.name() + ")" //
-						+ " expected: " + Long.toHexString(preset.params.check) //
-						+ " calculated: " + Long.toHexString(v));
+			final CRC ref = new GenericCalculateCRC(preset.params);
+			ref.update(random, 3, random.length - 3);
+			for (final int slices : new int[] { 1, 8, 16 }) {
+				final CRC crc = new GenericLookupTableCRC(preset.params, slices);
+				crc.update(CRC.TEST_VALUE.getBytes());
+				final long v = crc.getValue();
+				if (preset.params.check != v) {
+					throw new InvalidParameterException("Invalid check(" + preset.name() + ")" //
+							+ " slices: " + slices //
+							+ " expected: " + Long.toHexString(preset.params.check) //
+							+ " calculated: " + Long.toHexString(v));
+				}
+				crc.reset();
+				crc.update(random, 3, random.length - 3);
+				final long bulk = crc.getValue();
+				crc.reset();
+				crc.update(direct.duplicate());
+				if ((ref.getValue() != bulk) || (ref.getValue() != crc.getValue())) {
+					throw new InvalidParameterException("Invalid bulk(" + preset.name() + ")" //
+							+ " slices: " + slices //
+							+ " expected: " + Long.toHexString(ref.getValue()) //
+							+ " calculated: " + Long.toHexString(bulk) + "/" + Long.toHexString(crc.getValue()));
+				}
 			}
 		}
 		System.out.println("DONE: All right!");
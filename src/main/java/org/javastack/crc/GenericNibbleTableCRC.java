@@ -0,0 +1,190 @@
+package org.javastack.crc;
+
+import java.nio.ByteBuffer;
+import java.security.InvalidParameterException;
+import java.util.Random;
+
+/**
+ * Generic CRC based on half-byte lookup tables (16 entries, two lookups per byte). Slower than
+ * {@link GenericLookupTableCRC}, but faster than {@link GenericCalculateCRC} and tables are small enough to keep
+ * many CRCs resident in cache.
+ *
+ * @see Engine#NIBBLE
+ * @see Preset
+ * @see Params
+ * @see CRC
+ */
+public class GenericNibbleTableCRC extends CRC {
+	private static final TableCache<long[]> CACHE = new TableCache<long[]>();
+	private final Params p;
+	private final long[] table;
+	/**
+	 * Non-reflected CRCs are processed left-aligned in a 64 bits register (MSB of crc at bit 63)
+	 */
+	private final int shift;
+	private final long init;
+	private long crc;
+
+	public GenericNibbleTableCRC(final Params p) {
+		this.p = p;
+		this.shift = (p.refin ? 0 : 64 - p.width);
+		this.init = (p.refin) ? reverse(p.init, p.width) : (p.init << shift);
+		this.table = CACHE.get(p, (cached) -> true, (k, cached) -> generateTable(k));
+		this.reset();
+	}
+
+	/**
+	 * Generate the nibble table: table[n] is the register after processing the 4 bits of n
+	 *
+	 * @param p params of CRC
+	 * @return table (16 entries)
+	 */
+	private static final long[] generateTable(final Params p) {
+		final long[] table = new long[16];
+		if (p.refin) {
+			final long poly = reverse(p.poly, p.width);
+			for (int n = 0; n < table.length; n++) {
+				long c = n;
+				for (int i = 0; i < 4; i++) {
+					c = ((c & 1) != 0) ? ((c >>> 1) ^ poly) : (c >>> 1);
+				}
+				table[n] = c;
+			}
+		} else {
+			final long poly = (p.poly << (64 - p.width));
+			for (int n = 0; n < table.length; n++) {
+				long c = ((long) n << 60);
+				for (int i = 0; i < 4; i++) {
+					c = (c < 0) ? ((c << 1) ^ poly) : (c << 1);
+				}
+				table[n] = c;
+			}
+		}
+		return table;
+	}
+
+	@Override
+	public void reset() {
+		crc = init;
+	}
+
+	@Override
+	public void update(final int b) {
+		crc = (p.refin ? updateReflected(crc, b) : updateNormal(crc, b));
+	}
+
+	@Override
+	public void update(final byte[] buffer, int offset, final int length) {
+		long c = crc;
+		if (p.refin) {
+			for (final int end = offset + length; offset < end; offset++) {
+				c = updateReflected(c, buffer[offset]);
+			}
+		} else {
+			for (final int end = offset + length; offset < end; offset++) {
+				c = updateNormal(c, buffer[offset]);
+			}
+		}
+		crc = c;
+	}
+
+	@Override
+	public void update(final ByteBuffer buffer) {
+		if (buffer.hasArray()) {
+			super.update(buffer);
+			return;
+		}
+		// Direct or read-only: read in place, a word at a time
+		final ByteBuffer in = littleEndian(buffer);
+		long c = crc;
+		int offset = buffer.position();
+		final int limit = buffer.limit();
+		for (; limit - offset >= 8; offset += 8) {
+			final long w = in.getLong(offset);
+			if (p.refin) {
+				for (int k = 0; k < 64; k += 8) {
+					c = updateReflected(c, (int) (w >>> k));
+				}
+			} else {
+				for (int k = 0; k < 64; k += 8) {
+					c = updateNormal(c, (int) (w >>> k));
+				}
+			}
+		}
+		for (; offset < limit; offset++) {
+			c = (p.refin ? updateReflected(c, in.get(offset)) : updateNormal(c, in.get(offset)));
+		}
+		crc = c;
+		buffer.position(limit);
+	}
+
+	/**
+	 * Reflected: low nibble first
+	 */
+	private final long updateReflected(long c, final int b) {
+		final long[] t = table;
+		c = (c >>> 4) ^ t[((int) c ^ b) & 0xF];
+		return (c >>> 4) ^ t[((int) c ^ (b >>> 4)) & 0xF];
+	}
+
+	/**
+	 * Non-reflected: high nibble first
+	 */
+	private final long updateNormal(long c, final int b) {
+		final long[] t = table;
+		c = (c << 4) ^ t[((int) (c >>> 60) ^ (b >>> 4)) & 0xF];
+		return (c << 4) ^ t[((int) (c >>> 60) ^ b) & 0xF];
+	}
+
+	@Override
+	public void restoreState(final long state) {
+		final long reg = toRegister(p, state);
+		crc = (p.refin) ? reverse(reg, p.width) : (reg << shift);
+	}
+
+	@Override
+	public long getValue() {
+		final long reg = (crc >>> shift);
+		return (((p.refout != p.refin) ? reverse(reg, p.width) : reg) ^ p.xorout) & p.mask;
+	}
+
+	@Override
+	public Params getParams() {
+		return p;
+	}
+
+	/**
+	 * Simple Test
+	 *
+	 * @param args ignored
+	 */
+	public static void main(final String[] args) {
+		final byte[] random = new byte[1021];
+		new Random(42).nextBytes(random);
+		final ByteBuffer direct = ByteBuffer.allocateDirect(random.length);
+		direct.put(random).flip();
+		for (final Preset preset : Preset.values()) {
+			System.out.println("Testing: " + preset.name());
+			final CRC crc = new GenericNibbleTableCRC(preset.params);
+			crc.update(CRC.TEST_VALUE.getBytes());
+			if (preset.params.check != crc.getValue()) {
+				throw new InvalidParameterException("Invalid check(" + preset.name() + ")" //
+						+ " expected: " + Long.toHexString(preset.params.check) //
+						+ " calculated: " + Long.toHexString(crc.getValue()));
+			}
+			final CRC ref = new GenericCalculateCRC(preset.params);
+			ref.update(random);
+			crc.reset();
+			crc.update(random);
+			final long bulk = crc.getValue();
+			crc.reset();
+			crc.update(direct.duplicate());
+			if ((ref.getValue() != bulk) || (ref.getValue() != crc.getValue())) {
+				throw new InvalidParameterException("Invalid bulk(" + preset.name() + ")" //
+						+ " expected: " + Long.toHexString(ref.getValue()) //
+						+ " calculated: " + Long.toHexString(bulk) + "/" + Long.toHexString(crc.getValue()));
+			}
+		}
+		System.out.println("DONE: All right!");
+	}
+}
@@ -0,0 +1,138 @@
+package org.javastack.crc;
+
+import java.nio.ByteBuffer;
+import java.security.InvalidParameterException;
+
+/**
+ * CRC delegated to JDK intrinsics ({@link java.util.zip.CRC32} and, in Java 9+, {@link java.util.zip.CRC32C}),
+ * that JIT compile to hardware instructions (PCLMUL/CRC32).
+ * <p>
+ * Any 32 bits reflected CRC with the same polynomial is supported, differences in init (or restored state) and
+ * xorout are fixed-up in {@link #getValue()}.
+ * 
+ * @see Intrinsics
+ * @see Engine#TABLE
+ */
+final class IntrinsicCRC extends CRC {
+	private final Params p;
+	/**
+	 * Params of JDK checksum
+	 */
+	private final Params base;
+	private final java.util.zip.Checksum delegate;
+	/**
+	 * Difference of init (non-reflected register) between this params and JDK checksum
+	 */
+	private final long initFix;
+	/**
+	 * Difference of start register (non-reflected) between this CRC and JDK checksum: initFix or restored state
+	 */
+	private long fix;
+	private long length;
+
+	private IntrinsicCRC(final Params p, final Params base, final java.util.zip.Checksum delegate) {
+		this.p = p;
+		this.base = base;
+		this.delegate = delegate;
+		this.initFix = (p.init ^ base.init);
+		this.fix = initFix;
+	}
+
+	/**
+	 * Create an intrinsic CRC if these params are supported by JDK
+	 * 
+	 * @param p params of CRC
+	 * @return crc instance or null if not supported
+	 */
+	static CRC newInstance(final Params p) {
+		if ((p.width != 32) || !p.refin || !p.refout) {
+			return null;
+		}
+		final Params base;
+		final java.util.zip.Checksum delegate;
+		if (p.poly == Preset.CRC_32_ISO_HDLC.params.poly) {
+			base = Preset.CRC_32_ISO_HDLC.params;
+			delegate = Intrinsics.newCRC32();
+		} else if (p.poly == Preset.CRC_32_ISCSI.params.poly) {
+			base = Preset.CRC_32_ISCSI.params;
+			delegate = Intrinsics.newCRC32C();
+		} else {
+			return null;
+		}
+		return ((delegate == null) ? null : new IntrinsicCRC(p, base, delegate));
+	}
+
+	@Override
+	public void reset() {
+		delegate.reset();
+		length = 0;
+		fix = initFix;
+	}
+
+	@Override
+	public void update(final int b) {
+		delegate.update(b);
+		length++;
+	}
+
+	@Override
+	public void update(final byte[] buffer, final int offset, final int length) {
+		delegate.update(buffer, offset, length);
+		this.length += length;
+	}
+
+	@Override
+	public void update(final ByteBuffer buffer) {
+		length += buffer.remaining();
+		Intrinsics.update(delegate, buffer);
+	}
+
+	@Override
+	public void restoreState(final long state) {
+		delegate.reset();
+		length = 0;
+		fix = (toRegister(p, state) ^ base.init);
+	}
+
+	@Override
+	public long getValue() {
+		long reg = toRegister(base, delegate.getValue());
+		if (fix != 0) {
+			reg ^= shift(p, fix, length);
+		}
+		return fromRegister(p, reg);
+	}
+
+	@Override
+	public Params getParams() {
+		return p;
+	}
+
+	/**
+	 * Simple Test
+	 * 
+	 * @param args ignored
+	 */
+	public static void main(final String[] args) {
+		final Params custom = new Params("CRC-32/ISO-HDLC+INIT", 32, //
+				0x04c11db7, 0xf0748bce, 0x12345678, // poly, check, init
+				true, true, 0x0); // refin, refout, xorout
+		custom.test();
+		final Params[] params = { Preset.CRC_32_ISO_HDLC.params, Preset.CRC_32_JAMCRC.params,
+				Preset.CRC_32_ISCSI.params, custom };
+		for (final Params p : params) {
+			final CRC crc = newInstance(p);
+			System.out.println("Testing: " + p.name + " (" + ((crc == null) ? "not available" : "intrinsic") + ")");
+			if (crc == null) {
+				continue;
+			}
+			crc.update(CRC.TEST_VALUE.getBytes());
+			if (crc.getValue() != p.check) {
+				throw new InvalidParameterException("Invalid check(" + p.name + ")" //
+						+ " expected: " + Long.toHexString(p.check) //
+						+ " calculated: " + Long.toHexString(crc.getValue()));
+			}
+		}
+		System.out.println("DONE: All right!");
+	}
+}
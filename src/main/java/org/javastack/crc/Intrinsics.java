@@ -0,0 +1,39 @@
+package org.javastack.crc;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * Access to JDK intrinsic checksums (JIT uses hardware instructions).
+ * <p>
+ * This is the Java 8 version, Java 9+ version (in META-INF/versions/9 of multi-release JAR) adds CRC32C.
+ */
+final class Intrinsics {
+	/**
+	 * Return a new JDK CRC-32/ISO-HDLC
+	 * 
+	 * @return checksum
+	 */
+	static java.util.zip.Checksum newCRC32() {
+		return new CRC32();
+	}
+
+	/**
+	 * Return a new JDK CRC-32/ISCSI (CRC32C)
+	 * 
+	 * @return checksum or null if not available (Java 8)
+	 */
+	static java.util.zip.Checksum newCRC32C() {
+		return null;
+	}
+
+	/**
+	 * Updates the checksum with the bytes from the buffer
+	 * 
+	 * @param checksum to update
+	 * @param buffer input, position is advanced to limit
+	 */
+	static void update(final java.util.zip.Checksum checksum, final ByteBuffer buffer) {
+		((CRC32) checksum).update(buffer);
+	}
+}
@@ -0,0 +1,241 @@
+package org.javastack.crc;
+
+import java.nio.ByteBuffer;
+import java.security.InvalidParameterException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Several CRCs over the same data in a single pass: input is split in small blocks (fit in L1 cache) and each block
+ * is processed by all engines ({@link Engine#AUTO}) before the next one, so data is read from memory once instead
+ * of once per CRC.
+ *
+ * @see Engine#AUTO
+ */
+public class MultiCRC {
+	/**
+	 * Size of block processed by all CRCs before the next one (16KB, fits in L1 cache)
+	 */
+	public static final int BLOCK_SIZE = (16 << 10);
+
+	private static final Engine ENGINE = Engine.AUTO;
+
+	private final Params[] params;
+	private final CRC[] crcs;
+
+	/**
+	 * Create a multi CRC
+	 *
+	 * @param presets of CRCs (duplicates are ignored)
+	 * @throws InvalidParameterException if presets are empty
+	 */
+	public MultiCRC(final Preset... presets) throws InvalidParameterException {
+		this(toParams(presets));
+	}
+
+	/**
+	 * Create a multi CRC
+	 *
+	 * @param params of CRCs (duplicates are ignored)
+	 * @throws InvalidParameterException if params are empty
+	 */
+	public MultiCRC(final Params... params) throws InvalidParameterException {
+		if (params.length == 0) {
+			throw new InvalidParameterException("Invalid params: empty");
+		}
+		this.params = new LinkedHashSet<Params>(Arrays.asList(params)).toArray(new Params[0]);
+		this.crcs = new CRC[this.params.length];
+		for (int i = 0; i < crcs.length; i++) {
+			crcs[i] = ENGINE.getInstance(this.params[i]);
+		}
+	}
+
+	private static final Params[] toParams(final Preset[] presets) {
+		final Params[] params = new Params[presets.length];
+		for (int i = 0; i < presets.length; i++) {
+			params[i] = presets[i].params;
+		}
+		return params;
+	}
+
+	/**
+	 * Create a multi CRC of all presets
+	 *
+	 * @return multi crc
+	 */
+	public static MultiCRC all() {
+		return new MultiCRC(Preset.values());
+	}
+
+	/**
+	 * Reset all CRCs
+	 */
+	public void reset() {
+		for (final CRC crc : crcs) {
+			crc.reset();
+		}
+	}
+
+	/**
+	 * Update all CRCs with one byte
+	 *
+	 * @param b byte (low 8 bits)
+	 */
+	public void update(final int b) {
+		for (final CRC crc : crcs) {
+			crc.update(b);
+		}
+	}
+
+	/**
+	 * Update all CRCs with a buffer
+	 *
+	 * @param buffer input
+	 */
+	public void update(final byte[] buffer) {
+		update(buffer, 0, buffer.length);
+	}
+
+	/**
+	 * Update all CRCs with a buffer, block by block
+	 *
+	 * @param buffer input
+	 * @param offset in buffer
+	 * @param length of data
+	 */
+	public void update(final byte[] buffer, final int offset, final int length) {
+		final CRC[] crcs = this.crcs;
+		for (int i = offset, end = offset + length; i < end; i += BLOCK_SIZE) {
+			final int len = Math.min(end - i, BLOCK_SIZE);
+			for (final CRC crc : crcs) {
+				crc.update(buffer, i, len);
+			}
+		}
+	}
+
+	/**
+	 * Update all CRCs with remaining bytes of buffer, block by block (position is moved to limit)
+	 *
+	 * @param buffer input
+	 */
+	public void update(final ByteBuffer buffer) {
+		if (buffer.hasArray()) {
+			update(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+			buffer.position(buffer.limit());
+			return;
+		}
+		final int limit = buffer.limit();
+		for (int offset = buffer.position(); offset < limit; offset += BLOCK_SIZE) {
+			final int end = Math.min(limit, offset + BLOCK_SIZE);
+			for (final CRC crc : crcs) {
+				buffer.limit(end).position(offset);
+				crc.update(buffer);
+			}
+			buffer.limit(limit);
+		}
+		buffer.position(limit);
+	}
+
+	/**
+	 * Update all CRCs with count zero bytes
+	 *
+	 * @param count number of zero bytes
+	 * @see CRC#updateZeros(long)
+	 */
+	public void updateZeros(final long count) {
+		for (final CRC crc : crcs) {
+			crc.updateZeros(count);
+		}
+	}
+
+	/**
+	 * Return params of CRCs (in creation order)
+	 *
+	 * @return params
+	 */
+	public Params[] getParams() {
+		return params.clone();
+	}
+
+	/**
+	 * Return CRC value of a preset
+	 *
+	 * @param preset of CRC
+	 * @return crc value
+	 * @throws InvalidParameterException if preset is not computed
+	 */
+	public long getValue(final Preset preset) throws InvalidParameterException {
+		return getValue(preset.params);
+	}
+
+	/**
+	 * Return CRC value of params
+	 *
+	 * @param p params of CRC
+	 * @return crc value
+	 * @throws InvalidParameterException if params are not computed
+	 */
+	public long getValue(final Params p) throws InvalidParameterException {
+		for (int i = 0; i < params.length; i++) {
+			if (params[i].equals(p)) {
+				return crcs[i].getValue();
+			}
+		}
+		throw new InvalidParameterException("Invalid params: " + p.name);
+	}
+
+	/**
+	 * Return all CRC values
+	 *
+	 * @return values keyed by params (in creation order)
+	 */
+	public Map<Params, Long> getValues() {
+		final Map<Params, Long> values = new LinkedHashMap<Params, Long>();
+		for (int i = 0; i < params.length; i++) {
+			values.put(params[i], crcs[i].getValue());
+		}
+		return values;
+	}
+
+	/**
+	 * Simple Test
+	 *
+	 * @param args ignored
+	 */
+	public static void main(final String[] args) {
+		final byte[] random = new byte[(BLOCK_SIZE * 3) + 13];
+		new Random(42).nextBytes(random);
+		final MultiCRC multi = MultiCRC.all();
+		final ByteBuffer direct = ByteBuffer.allocateDirect(random.length);
+		direct.put(random).flip();
+		for (int k = 0; k < 2; k++) {
+			multi.reset();
+			if (k == 0) {
+				multi.update(random, 0, 100);
+				multi.update(random[100]);
+				multi.update(random, 101, random.length - 101);
+			} else {
+				multi.update(direct);
+			}
+			multi.updateZeros(1000);
+			for (final Preset preset : Preset.values()) {
+				final CRC ref = preset.getInstance(true);
+				ref.update(random);
+				ref.update(new byte[1000]);
+				if (ref.getValue() != multi.getValue(preset)) {
+					throw new InvalidParameterException("Invalid multi(" + preset.name() + ")" //
+							+ " mode: " + k //
+							+ " expected: " + Long.toHexString(ref.getValue()) //
+							+ " calculated: " + Long.toHexString(multi.getValue(preset)));
+				}
+			}
+		}
+		if ((direct.position() != direct.limit()) || (multi.getValues().size() != Preset.values().length)) {
+			throw new InvalidParameterException("Invalid state");
+		}
+		System.out.println("DONE: All right!");
+	}
+}
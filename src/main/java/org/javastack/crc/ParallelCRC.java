@@ -0,0 +1,252 @@
+package org.javastack.crc;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Parallel CRC calculation of large buffers using Fork/Join.
+ * <p>
+ * Input is split in chunks, each chunk is computed in a core with the bulk engine ({@link Engine#AUTO}) and
+ * partial CRCs are merged with {@link CRC#combine(Params, long, long, long)}. Result is the same as
+ * <code>preset.getInstance(true).update(buffer)</code>.
+ *
+ * @see CRC#combine(Params, long, long, long)
+ * @see Engine#AUTO
+ */
+public class ParallelCRC {
+	/**
+	 * Size in bytes below which calculation is single-threaded
+	 */
+	public static final int DEFAULT_THRESHOLD = (1 << 20);
+
+	private static final Engine ENGINE = Engine.AUTO;
+
+	/**
+	 * Compute CRC of full buffer in parallel
+	 *
+	 * @param preset of CRC
+	 * @param buffer input
+	 * @param pool to run tasks
+	 * @return crc value
+	 */
+	public static long compute(final Preset preset, final byte[] buffer, final ForkJoinPool pool) {
+		return compute(preset, buffer, 0, buffer.length, pool, DEFAULT_THRESHOLD);
+	}
+
+	/**
+	 * Compute CRC of buffer range in parallel
+	 *
+	 * @param preset of CRC
+	 * @param buffer input
+	 * @param offset in buffer
+	 * @param length of data
+	 * @param pool to run tasks
+	 * @param threshold size in bytes below which calculation is single-threaded (at least 1)
+	 * @return crc value
+	 * @throws IllegalArgumentException if threshold is less than 1
+	 */
+	public static long compute(final Preset preset, final byte[] buffer, final int offset, final int length,
+			final ForkJoinPool pool, final int threshold) {
+		checkThreshold(threshold);
+		if ((offset < 0) || (length < 0) || (offset > buffer.length - length)) {
+			throw new ArrayIndexOutOfBoundsException("offset=" + offset + " length=" + length);
+		}
+		final Params p = preset.params;
+		if (length <= threshold) {
+			return computeChunk(p, buffer, offset, length);
+		}
+		final int chunk = chunkSize(length, pool, threshold);
+		return pool.invoke(new ArrayTask(p, buffer, offset, length, chunk));
+	}
+
+	/**
+	 * Compute CRC of buffer (from position to limit) in parallel, position is advanced to limit.
+	 *
+	 * @param preset of CRC
+	 * @param buffer input (heap or direct)
+	 * @param pool to run tasks
+	 * @return crc value
+	 */
+	public static long compute(final Preset preset, final ByteBuffer buffer, final ForkJoinPool pool) {
+		return compute(preset, buffer, pool, DEFAULT_THRESHOLD);
+	}
+
+	/**
+	 * Compute CRC of buffer (from position to limit) in parallel, position is advanced to limit.
+	 *
+	 * @param preset of CRC
+	 * @param buffer input (heap or direct)
+	 * @param pool to run tasks
+	 * @param threshold size in bytes below which calculation is single-threaded (at least 1)
+	 * @return crc value
+	 * @throws IllegalArgumentException if threshold is less than 1
+	 */
+	public static long compute(final Preset preset, final ByteBuffer buffer, final ForkJoinPool pool,
+			final int threshold) {
+		checkThreshold(threshold);
+		final int position = buffer.position();
+		final int length = buffer.remaining();
+		final long value;
+		if (buffer.hasArray()) {
+			value = compute(preset, buffer.array(), buffer.arrayOffset() + position, length, pool, threshold);
+		} else if (length <= threshold) {
+			value = computeChunk(preset.params, buffer, position, length);
+		} else {
+			final int chunk = chunkSize(length, pool, threshold);
+			value = pool.invoke(new BufferTask(preset.params, buffer, position, length, chunk));
+		}
+		buffer.position(position + length);
+		return value;
+	}
+
+	private static final void checkThreshold(final int threshold) {
+		if (threshold < 1) {
+			throw new IllegalArgumentException("Invalid threshold: " + threshold);
+		}
+	}
+
+	private static final int chunkSize(final int length, final ForkJoinPool pool, final int threshold) {
+		// Some extra tasks per core for load balancing (never empty chunks, splitting must end)
+		return Math.max(Math.max(threshold, 1), length / (pool.getParallelism() << 2));
+	}
+
+	static final long computeChunk(final Params p, final byte[] buffer, final int offset, final int length) {
+		final CRC crc = ENGINE.getInstance(p);
+		crc.update(buffer, offset, length);
+		return crc.getValue();
+	}
+
+	static final long computeChunk(final Params p, final ByteBuffer buffer, final int offset, final int length) {
+		final CRC crc = ENGINE.getInstance(p);
+		final ByteBuffer in = buffer.duplicate();
+		in.limit(offset + length);
+		in.position(offset);
+		crc.update(in);
+		return crc.getValue();
+	}
+
+	private static abstract class ChunkTask extends RecursiveTask<Long> {
+		private static final long serialVersionUID = 42L;
+
+		protected final Params p;
+		protected final int offset;
+		protected final int length;
+		protected final int chunk;
+
+		ChunkTask(final Params p, final int offset, final int length, final int chunk) {
+			this.p = p;
+			this.offset = offset;
+			this.length = length;
+			this.chunk = chunk;
+		}
+
+		@Override
+		protected Long compute() {
+			if (length <= chunk) {
+				return computeChunk();
+			}
+			final int half = (length >>> 1);
+			final ChunkTask left = split(offset, half);
+			final ChunkTask right = split(offset + half, length - half);
+			left.fork();
+			final long crcRight = right.compute();
+			final long crcLeft = left.join();
+			return CRC.combine(p, crcLeft, crcRight, length - half);
+		}
+
+		protected abstract long computeChunk();
+
+		protected abstract ChunkTask split(final int offset, final int length);
+	}
+
+	private static final class ArrayTask extends ChunkTask {
+		private static final long serialVersionUID = 42L;
+
+		private final byte[] buffer;
+
+		ArrayTask(final Params p, final byte[] buffer, final int offset, final int length, final int chunk) {
+			super(p, offset, length, chunk);
+			this.buffer = buffer;
+		}
+
+		@Override
+		protected long computeChunk() {
+			return ParallelCRC.computeChunk(p, buffer, offset, length);
+		}
+
+		@Override
+		protected ChunkTask split(final int offset, final int length) {
+			return new ArrayTask(p, buffer, offset, length, chunk);
+		}
+	}
+
+	private static final class BufferTask extends ChunkTask {
+		private static final long serialVersionUID = 42L;
+
+		private final ByteBuffer buffer;
+
+		BufferTask(final Params p, final ByteBuffer buffer, final int offset, final int length, final int chunk) {
+			super(p, offset, length, chunk);
+			this.buffer = buffer;
+		}
+
+		@Override
+		protected long computeChunk() {
+			return ParallelCRC.computeChunk(p, buffer, offset, length);
+		}
+
+		@Override
+		protected ChunkTask split(final int offset, final int length) {
+			return new BufferTask(p, buffer, offset, length, chunk);
+		}
+	}
+
+	/**
+	 * Simple Test
+	 *
+	 * @param args ignored
+	 */
+	public static void main(final String[] args) {
+		final byte[] random = new byte[(4 << 20) + 13];
+		new Random(42).nextBytes(random);
+		final ByteBuffer direct = ByteBuffer.allocateDirect(random.length);
+		direct.put(random).flip();
+		final ForkJoinPool pool = ForkJoinPool.commonPool();
+		for (final Preset preset : Preset.values()) {
+			final CRC crc = preset.getInstance(true);
+			crc.update(random);
+			final long want = crc.getValue();
+			final long calcArray = compute(preset, random, 0, random.length, pool, 4096);
+			final long calcBuffer = compute(preset, direct.duplicate(), pool, 4096);
+			if ((want != calcArray) || (want != calcBuffer)) {
+				throw new RuntimeException("Invalid parallel(" + preset.name() + ")" //
+						+ " expected: " + Long.toHexString(want) //
+						+ " calculated: " + Long.toHexString(calcArray) + "/" + Long.toHexString(calcBuffer));
+			}
+		}
+		// Smallest threshold: chunks of 1 byte
+		final Preset preset = Preset.CRC_32_ISCSI;
+		final long want = preset.checksum(random, 0, 100);
+		if ((want != compute(preset, random, 0, 100, pool, 1))
+				|| (want != compute(preset, (ByteBuffer) direct.duplicate().limit(100), pool, 1))) {
+			throw new RuntimeException("Invalid parallel threshold=1");
+		}
+		for (final int threshold : new int[] { 0, -1 }) {
+			try {
+				compute(preset, random, 0, 100, pool, threshold);
+				throw new RuntimeException("Invalid threshold accepted: " + threshold);
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+			try {
+				compute(preset, direct.duplicate(), pool, threshold);
+				throw new RuntimeException("Invalid threshold accepted: " + threshold);
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+		System.out.println("DONE: All right!");
+	}
+}
@@ -50,6 +50,10 @@ public class Params implements Comparable<Params> {
 	 * The most significant bit=1
 	 */
 	final long msb;
+	/**
+	 * Lazy precalculated x^(8*2^k) modulo poly (k=0..63)
+	 */
+	private volatile long[] powers;
 
 	public Params(final String name, final int width, //
 			final long poly, final long check, final long init, //
@@ -85,6 +89,69 @@ public class Params implements Comparable<Params> {
 		}
 	}
 
+	/**
+	 * Combine two CRCs: compute crc(A||B) from crc(A), crc(B) and length of B, in O(log(lengthB)) time.
+	 * 
+	 * @param crcA value of first block
+	 * @param crcB value of second block
+	 * @param lengthB length in bytes of second block
+	 * @return crc of both blocks concatenated
+	 * @see CRC#combine(Params, long, long, long)
+	 */
+	public long combine(final long crcA, final long crcB, final long lengthB) {
+		return CRC.combine(this, crcA, crcB, lengthB);
+	}
+
+	/**
+	 * Return x^(8*2^k) modulo poly, for k=0..63
+	 * 
+	 * @return powers table
+	 */
+	long[] powers() {
+		long[] pw = powers;
+		if (pw == null) {
+			pw = new long[64];
+			long x8 = 1;
+			for (int i = 0; i < 8; i++) {
+				x8 = CRC.multiplyX(this, x8);
+			}
+			pw[0] = x8;
+			for (int k = 1; k < pw.length; k++) {
+				pw[k] = CRC.multiply(this, pw[k - 1], pw[k - 1]);
+			}
+			powers = pw;
+		}
+		return pw;
+	}
+
+	/**
+	 * Return true if both params define the same algorithm (width, poly, init, refin, refout, xorout), ignoring name
+	 * and check
+	 * 
+	 * @param o other params
+	 * @return true if same algorithm
+	 */
+	boolean sameAlgorithm(final Params o) {
+		return (this.width == o.width) && (this.poly == o.poly) && (this.init == o.init) //
+				&& (this.refin == o.refin) && (this.refout == o.refout) && (this.xorout == o.xorout);
+	}
+
+	/**
+	 * Hash of algorithm (width, poly, init, refin, refout, xorout), ignoring name and check, stable between JVMs
+	 * (for serialized forms)
+	 * 
+	 * @return hash
+	 */
+	int algorithmHash() {
+		int h = width;
+		h = (31 * h) + Long.hashCode(poly);
+		h = (31 * h) + Long.hashCode(init);
+		h = (31 * h) + Long.hashCode(xorout);
+		h = (31 * h) + (refin ? 1 : 0);
+		h = (31 * h) + (refout ? 1 : 0);
+		return h;
+	}
+
 	@Override
 	public int compareTo(final Params o) {
 		// width, poly, init, xorout, check, refin, refout, name
@@ -0,0 +1,221 @@
+package org.javastack.crc;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * CRC of files (or any channel) with a read-ahead pipeline: a reader thread fills a ring of reusable direct buffers
+ * while the caller thread runs the CRC engine over the filled ones, so I/O and computation overlap and throughput
+ * approaches min(disk, crc) instead of their harmonic sum.
+ *
+ * @see FileCRC
+ * @see Engine#AUTO
+ */
+public class PipelinedFileCRC {
+	/**
+	 * Default size of each buffer (1MB)
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = (1 << 20);
+	/**
+	 * Default number of buffers in the ring
+	 */
+	public static final int DEFAULT_BUFFERS = 4;
+
+	private static final Engine ENGINE = Engine.AUTO;
+	private static final ByteBuffer EOF = ByteBuffer.allocate(0);
+
+	/**
+	 * Compute CRC of a file
+	 *
+	 * @param preset of CRC
+	 * @param file to read
+	 * @return crc value
+	 * @throws IOException if error reading file
+	 */
+	public static long compute(final Preset preset, final Path file) throws IOException {
+		final CRC crc = preset.getInstance(ENGINE);
+		update(crc, file, DEFAULT_BUFFER_SIZE, DEFAULT_BUFFERS);
+		return crc.getValue();
+	}
+
+	/**
+	 * Update checksum with content of a file
+	 *
+	 * @param crc to update
+	 * @param file to read
+	 * @param bufferSize size of each buffer in bytes
+	 * @param buffers number of buffers in the ring (at least 2)
+	 * @return number of bytes read
+	 * @throws IOException if error reading file
+	 */
+	public static long update(final Checksum crc, final Path file, final int bufferSize, final int buffers)
+			throws IOException {
+		try (FileChannel fc = FileChannel.open(file, StandardOpenOption.READ)) {
+			return update(crc, fc, bufferSize, buffers);
+		}
+	}
+
+	/**
+	 * Update checksum with content of a channel (until end of stream). Channel is not closed, and reader thread is
+	 * never interrupted (on early exit it stops after the read in progress, if any).
+	 *
+	 * @param crc to update
+	 * @param channel to read
+	 * @param bufferSize size of each buffer in bytes
+	 * @param buffers number of buffers in the ring (at least 2)
+	 * @return number of bytes read
+	 * @throws IOException if error reading channel
+	 */
+	public static long update(final Checksum crc, final ReadableByteChannel channel, final int bufferSize,
+			final int buffers) throws IOException {
+		if (bufferSize <= 0) {
+			throw new IllegalArgumentException("Invalid bufferSize: " + bufferSize);
+		}
+		if (buffers < 2) {
+			throw new IllegalArgumentException("Invalid buffers: " + buffers);
+		}
+		final BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<ByteBuffer>(buffers);
+		final BlockingQueue<ByteBuffer> full = new ArrayBlockingQueue<ByteBuffer>(buffers + 1);
+		for (int i = 0; i < buffers; i++) {
+			free.add(ByteBuffer.allocateDirect(bufferSize));
+		}
+		final Reader reader = new Reader(channel, free, full);
+		reader.start();
+		try {
+			long total = 0;
+			while (true) {
+				final ByteBuffer buf = full.take();
+				if (buf == EOF) {
+					break;
+				}
+				total += buf.remaining();
+				FileCRC.update(crc, buf);
+				free.put(buf);
+			}
+			final Throwable error = reader.error;
+			if (error instanceof IOException) {
+				throw (IOException) error;
+			} else if (error != null) {
+				throw new IOException(error);
+			}
+			return total;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException(String.valueOf(e));
+		} finally {
+			// interrupt would close an InterruptibleChannel, wake up reader blocked on free queue instead
+			reader.stop = true;
+			free.offer(EOF);
+		}
+	}
+
+	private static class Reader extends Thread {
+		private final ReadableByteChannel channel;
+		private final BlockingQueue<ByteBuffer> free;
+		private final BlockingQueue<ByteBuffer> full;
+		volatile Throwable error = null;
+		volatile boolean stop = false;
+
+		Reader(final ReadableByteChannel channel, final BlockingQueue<ByteBuffer> free,
+				final BlockingQueue<ByteBuffer> full) {
+			super("crc-reader");
+			this.setDaemon(true);
+			this.channel = channel;
+			this.free = free;
+			this.full = full;
+		}
+
+		@Override
+		public void run() {
+			try {
+				boolean eof = false;
+				while (!eof) {
+					final ByteBuffer buf = free.take();
+					if (stop || (buf == EOF)) {
+						return;
+					}
+					buf.clear();
+					while (buf.hasRemaining()) {
+						if (channel.read(buf) < 0) {
+							eof = true;
+							break;
+						}
+					}
+					buf.flip();
+					if (buf.hasRemaining()) {
+						full.put(buf);
+					}
+				}
+			} catch (InterruptedException e) {
+				return;
+			} catch (Throwable e) {
+				error = e;
+			} finally {
+				full.offer(EOF); // always, or caller would wait forever
+			}
+		}
+	}
+
+	/**
+	 * Simple Test
+	 *
+	 * @param args ignored
+	 * @throws IOException if error
+	 */
+	public static void main(final String[] args) throws IOException {
+		final byte[] random = new byte[(1 << 20) + 13];
+		new Random(42).nextBytes(random);
+		final Path tmp = Files.createTempFile("crc-", ".bin");
+		try {
+			Files.write(tmp, random);
+			for (final Preset preset : Preset.values()) {
+				final CRC ref = preset.getInstance(true);
+				ref.update(random);
+				final CRC crc = preset.getInstance(ENGINE);
+				final long size = update(crc, tmp, 4093, 3); // odd buffer to test ring
+				if ((ref.getValue() != crc.getValue()) || (ref.getValue() != compute(preset, tmp))
+						|| (size != random.length)) {
+					throw new RuntimeException("Invalid file(" + preset.name() + ")" //
+							+ " expected: " + Long.toHexString(ref.getValue()) //
+							+ " calculated: " + Long.toHexString(crc.getValue()));
+				}
+			}
+		} finally {
+			Files.delete(tmp);
+		}
+		// Unchecked error in reader thread must reach caller (not hang)
+		final ReadableByteChannel broken = new ReadableByteChannel() {
+			@Override
+			public int read(final ByteBuffer dst) {
+				throw new IllegalStateException("broken");
+			}
+
+			@Override
+			public boolean isOpen() {
+				return true;
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+		try {
+			update(Preset.CRC_32_ISCSI.getInstance(ENGINE), broken, 4096, 2);
+			throw new RuntimeException("Expected error");
+		} catch (IOException e) {
+			if (!(e.getCause() instanceof IllegalStateException)) {
+				throw e;
+			}
+		}
+		System.out.println("DONE: All right!");
+	}
+}
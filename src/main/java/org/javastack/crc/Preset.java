@@ -1,6 +1,7 @@
 package org.javastack.crc;
 
 import java.io.FileNotFoundException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
@@ -129,11 +130,19 @@ public enum Preset {
 	 * Associated {@link Params} with this {@link Preset}
 	 */
 	public final Params params;
+	private final ThreadLocal<CRC> local;
+	private volatile StatelessCRC stateless;
 
 	Preset(final String name, final int width, //
 			final long poly, final long check, final long init, //
 			final boolean refin, final boolean refout, final long xorout) {
 		this.params = new Params(name, width, poly, check, init, refin, refout, xorout);
+		this.local = new ThreadLocal<CRC>() {
+			@Override
+			protected CRC initialValue() {
+				return getInstance(Engine.TABLE);
+			}
+		};
 	}
 
 	/**
@@ -162,15 +171,22 @@ public enum Preset {
 	/**
 	 * Return a CRC instance associated with this {@link Preset}
 	 * 
-	 * @param tableLookup true if {@link GenericLookupTableCRC}, false to {@link GenericCalculateCRC}
+	 * @param tableLookup true if lookup-table ({@link Engine#TABLE}), false to {@link GenericCalculateCRC}
 	 * @return crc instance
 	 */
 	public CRC getInstance(final boolean tableLookup) {
-		if (tableLookup) {
-			return new GenericLookupTableCRC(this.params);
-		} else {
-			return new GenericCalculateCRC(this.params);
-		}
+		return this.getInstance(tableLookup ? Engine.TABLE : Engine.CALCULATE);
+	}
+
+	/**
+	 * Return a CRC instance associated with this {@link Preset} using the specified engine
+	 * 
+	 * @param engine to use (calculated, lookup-table, slicing-by-8, ...)
+	 * @return crc instance
+	 * @see Engine
+	 */
+	public CRC getInstance(final Engine engine) {
+		return engine.getInstance(this.params);
 	}
 
 	/**
@@ -183,6 +199,169 @@ public enum Preset {
 		return this.getInstance(true);
 	}
 
+	/**
+	 * Return the CRC instance (lookup-table) owned by current thread, already reset. Instance is reused by next
+	 * calls in the same thread (including {@link #checksum(byte[], int, int)}), so must not be shared with other
+	 * threads or kept after use.
+	 * 
+	 * @return crc instance of current thread
+	 */
+	public CRC local() {
+		final CRC crc = local.get();
+		crc.reset();
+		return crc;
+	}
+
+	/**
+	 * Compute CRC of a buffer with the instance owned by current thread (without allocation)
+	 * 
+	 * @param buffer to compute
+	 * @param offset in buffer
+	 * @param length of data
+	 * @return crc value
+	 * @see #local()
+	 */
+	public long checksum(final byte[] buffer, final int offset, final int length) {
+		final CRC crc = local();
+		crc.update(buffer, offset, length);
+		return crc.getValue();
+	}
+
+	/**
+	 * Compute CRC of a buffer with the instance owned by current thread (without allocation)
+	 * 
+	 * @param buffer to compute
+	 * @return crc value
+	 * @see #local()
+	 */
+	public long checksum(final byte[] buffer) {
+		return checksum(buffer, 0, buffer.length);
+	}
+
+	/**
+	 * Return the stateless functions of this {@link Preset} (created on first use)
+	 * 
+	 * @return stateless crc
+	 */
+	public StatelessCRC stateless() {
+		StatelessCRC s = stateless;
+		if (s == null) {
+			stateless = s = new StatelessCRC(params);
+		}
+		return s;
+	}
+
+	/**
+	 * Initial state for stateless functions
+	 * 
+	 * @return state
+	 * @see StatelessCRC#initial()
+	 */
+	public long initial() {
+		return stateless().initial();
+	}
+
+	/**
+	 * Update state with one byte (stateless, allocation-free)
+	 * 
+	 * @param state current state
+	 * @param b byte (low 8 bits)
+	 * @return new state
+	 * @see StatelessCRC#update(long, int)
+	 */
+	public long update(final long state, final int b) {
+		return stateless().update(state, b);
+	}
+
+	/**
+	 * Update state with a buffer (stateless, allocation-free)
+	 * 
+	 * @param state current state
+	 * @param buffer input
+	 * @param offset in buffer
+	 * @param length of data
+	 * @return new state
+	 * @see StatelessCRC#update(long, byte[], int, int)
+	 */
+	public long update(final long state, final byte[] buffer, final int offset, final int length) {
+		return stateless().update(state, buffer, offset, length);
+	}
+
+	/**
+	 * Convert state to CRC value
+	 * 
+	 * @param state current state
+	 * @return crc value
+	 * @see StatelessCRC#finish(long)
+	 */
+	public long finish(final long state) {
+		return stateless().finish(state);
+	}
+
+	/**
+	 * Compute CRC of many independent messages in one call, interleaving several messages in the same loop (without
+	 * allocation)
+	 * 
+	 * @param data input
+	 * @param offsets of each message in data
+	 * @param lengths of each message
+	 * @param out crc value of each message
+	 * @see StatelessCRC#computeBatch(byte[], int[], int[], long[])
+	 */
+	public void computeBatch(final byte[] data, final int[] offsets, final int[] lengths, final long[] out) {
+		computeBatch(data, 0, offsets, lengths, out);
+	}
+
+	/**
+	 * Compute CRC of many independent messages in one call, interleaving several messages in the same loop (without
+	 * allocation)
+	 * 
+	 * @param data input (offsets are absolute, position and limit are ignored and restored on return)
+	 * @param offsets of each message in data
+	 * @param lengths of each message
+	 * @param out crc value of each message
+	 * @see StatelessCRC#computeBatch(ByteBuffer, int[], int[], long[])
+	 */
+	public void computeBatch(final ByteBuffer data, final int[] offsets, final int[] lengths, final long[] out) {
+		if (data.hasArray()) {
+			computeBatch(data.array(), data.arrayOffset(), offsets, lengths, out);
+			return;
+		}
+		final CRC crc = local.get();
+		if (!(crc instanceof IntrinsicCRC)) {
+			stateless().computeBatch(data, offsets, lengths, out);
+			return;
+		}
+		final int n = StatelessCRC.checkBatch(offsets, lengths, out);
+		final int position = data.position(), limit = data.limit();
+		try {
+			for (int i = 0; i < n; i++) {
+				data.limit(offsets[i] + lengths[i]).position(offsets[i]);
+				crc.reset();
+				crc.update(data);
+				out[i] = crc.getValue();
+			}
+		} finally {
+			data.limit(limit).position(position);
+		}
+	}
+
+	private void computeBatch(final byte[] data, final int base, final int[] offsets, final int[] lengths,
+			final long[] out) {
+		final CRC crc = local.get();
+		if (!(crc instanceof IntrinsicCRC)) {
+			stateless().computeBatch(data, base, offsets, lengths, out);
+			return;
+		}
+		// JDK intrinsic (hardware instructions) is faster than interleaved lookup-tables
+		final int n = StatelessCRC.checkBatch(offsets, lengths, out);
+		for (int i = 0; i < n; i++) {
+			crc.reset();
+			crc.update(data, base + offsets[i], lengths[i]);
+			out[i] = crc.getValue();
+		}
+	}
+
 	/**
 	 * Print a list with supported Presets in Markdown format (table)
 	 * 
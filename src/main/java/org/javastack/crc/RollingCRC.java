@@ -0,0 +1,195 @@
+package org.javastack.crc;
+
+import java.security.InvalidParameterException;
+import java.util.Random;
+
+/**
+ * Rolling (sliding-window) CRC: {@link #getValue()} is the CRC (with all {@link Params}) of the last
+ * <code>window</code> bytes, and sliding the window one byte costs O(1).
+ * <p>
+ * CRC is linear, so the outgoing byte is removed XORing its contribution: the register of that byte followed by
+ * <code>window</code> zero bytes, precomputed in an "outgoing" table (also with the constant difference of init
+ * contribution between window+1 and window bytes).
+ *
+ * @see CRCChunker
+ */
+public class RollingCRC {
+	private final Params p;
+	private final int window;
+	private final long[] table;
+	private final long[] outTable;
+	/**
+	 * Non-reflected CRCs are processed left-aligned in a 64 bits register (MSB of crc at bit 63)
+	 */
+	private final int shift;
+	private final long init;
+	private final byte[] ring;
+	private int position;
+	private int count;
+	private long crc;
+
+	/**
+	 * Create a rolling CRC
+	 *
+	 * @param p params of CRC
+	 * @param window length in bytes
+	 * @throws InvalidParameterException if window is invalid
+	 */
+	public RollingCRC(final Params p, final int window) throws InvalidParameterException {
+		if (window <= 0) {
+			throw new InvalidParameterException("Invalid window: " + window);
+		}
+		this.p = p;
+		this.window = window;
+		this.table = GenericLookupTableCRC.table(p);
+		this.shift = (p.refin ? 0 : 64 - p.width);
+		this.init = toInternal(p.init);
+		this.outTable = outTable(p, window);
+		this.ring = new byte[window];
+		this.reset();
+	}
+
+	/**
+	 * Outgoing table: contribution of byte b followed by window zero bytes, xor difference of init contribution
+	 * over window+1 and window bytes
+	 */
+	private final long[] outTable(final Params p, final int window) {
+		final long initFix = CRC.shift(p, p.init, window + 1L) ^ CRC.shift(p, p.init, window);
+		final long[] out = new long[256];
+		for (int b = 0; b < 256; b++) {
+			// register (non-reflected) after byte b from zero register
+			final long reg = toNormal(step(0, b));
+			out[b] = toInternal(CRC.shift(p, reg, window) ^ initFix);
+		}
+		return out;
+	}
+
+	private final long toInternal(final long reg) {
+		return (p.refin ? CRC.reverse(reg, p.width) : (reg << shift));
+	}
+
+	private final long toNormal(final long c) {
+		return (p.refin ? CRC.reverse(c, p.width) : (c >>> shift));
+	}
+
+	private final long step(final long c, final int b) {
+		if (p.refin) {
+			return ((c >>> 8) ^ table[(b ^ (int) c) & 0xFF]);
+		}
+		return table[(b ^ (int) (c >>> 56)) & 0xFF] ^ (c << 8);
+	}
+
+	/**
+	 * Reset to empty window
+	 */
+	public void reset() {
+		crc = init;
+		position = 0;
+		count = 0;
+	}
+
+	/**
+	 * Add a byte to the window (removing the oldest one if window is full)
+	 *
+	 * @param b byte (low 8 bits)
+	 */
+	public void update(final int b) {
+		final int out = ring[position];
+		ring[position] = (byte) b;
+		if (++position == window) {
+			position = 0;
+		}
+		crc = step(crc, b);
+		if (count == window) {
+			crc ^= outTable[out & 0xFF];
+		} else {
+			count++;
+		}
+	}
+
+	/**
+	 * Add bytes to the window
+	 *
+	 * @param buffer input
+	 * @param offset in buffer
+	 * @param length of data
+	 */
+	public void update(final byte[] buffer, final int offset, final int length) {
+		for (int i = offset, end = offset + length; i < end; i++) {
+			update(buffer[i]);
+		}
+	}
+
+	/**
+	 * Add a byte and return new value
+	 *
+	 * @param b byte (low 8 bits)
+	 * @return CRC of window
+	 */
+	public long roll(final int b) {
+		update(b);
+		return getValue();
+	}
+
+	/**
+	 * Return true if window is full (at least window bytes processed since reset)
+	 *
+	 * @return true if full
+	 */
+	public boolean isFull() {
+		return (count == window);
+	}
+
+	/**
+	 * Return length of window
+	 *
+	 * @return window in bytes
+	 */
+	public int getWindow() {
+		return window;
+	}
+
+	/**
+	 * Return CRC of last window bytes (or less if window is not full)
+	 *
+	 * @return crc value
+	 */
+	public long getValue() {
+		final long reg = (crc >>> shift);
+		return (((p.refout != p.refin) ? CRC.reverse(reg, p.width) : reg) ^ p.xorout) & p.mask;
+	}
+
+	public Params getParams() {
+		return p;
+	}
+
+	/**
+	 * Simple Test
+	 *
+	 * @param args ignored
+	 */
+	public static void main(final String[] args) {
+		final byte[] random = new byte[300];
+		new Random(42).nextBytes(random);
+		for (final Preset preset : Preset.values()) {
+			System.out.println("Testing: " + preset.name());
+			for (final int window : new int[] { 1, 16, 48 }) {
+				final RollingCRC rolling = new RollingCRC(preset.params, window);
+				final CRC ref = new GenericLookupTableCRC(preset.params);
+				for (int i = 0; i < random.length; i++) {
+					final long v = rolling.roll(random[i]);
+					final int start = Math.max(0, i + 1 - window);
+					ref.reset();
+					ref.update(random, start, i + 1 - start);
+					if (v != ref.getValue()) {
+						throw new InvalidParameterException("Invalid rolling(" + preset.name() + ")" //
+								+ " window: " + window + " position: " + i //
+								+ " expected: " + Long.toHexString(ref.getValue()) //
+								+ " calculated: " + Long.toHexString(v));
+					}
+				}
+			}
+		}
+		System.out.println("DONE: All right!");
+	}
+}
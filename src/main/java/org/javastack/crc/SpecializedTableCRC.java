@@ -0,0 +1,675 @@
+package org.javastack.crc;
+
+import java.nio.ByteBuffer;
+import java.security.InvalidParameterException;
+import java.util.Random;
+
+/**
+ * Lookup-table CRCs specialized by width and reflection (reflected or MSB-first). Tables are stored in the narrowest
+ * array for the width (byte[] for width &lt;= 8, short[] &lt;= 16, int[] &lt;= 32, long[] for wider) to reduce
+ * cache footprint. All parameters are in final fields and per-byte loop is branch-free, so the JIT can inline and
+ * unroll it.
+ * <p>
+ * Non-reflected CRCs are left-aligned in the register (MSB of crc at highest bit), this way sub-byte widths (&lt;
+ * 8 bits) use the same loop as MSB-first.
+ *
+ * @see Preset#getInstance(boolean)
+ * @see Engine#TABLE
+ * @see GenericLookupTableCRC
+ */
+abstract class SpecializedTableCRC extends CRC {
+	private static final TableCache<byte[]> CACHE8 = new TableCache<byte[]>();
+	private static final TableCache<short[]> CACHE16 = new TableCache<short[]>();
+	private static final TableCache<int[]> CACHE32 = new TableCache<int[]>();
+
+	protected final Params p;
+	/**
+	 * true if register must be reflected in {@link #getValue()}
+	 */
+	protected final boolean reflectOut;
+
+	protected SpecializedTableCRC(final Params p) {
+		this.p = p;
+		this.reflectOut = (p.refout != p.refin);
+	}
+
+	/**
+	 * Create the right specialized lookup-table CRC for these params
+	 *
+	 * @param p params of CRC
+	 * @return crc instance
+	 */
+	static CRC newInstance(final Params p) {
+		if (p.width <= 8) {
+			return new Table8(p);
+		}
+		if (p.width <= 16) {
+			return (p.refin ? new Reflected16(p) : new Normal16(p));
+		}
+		if (p.width <= 32) {
+			return (p.refin ? new Reflected32(p) : new Normal32(p));
+		}
+		return (p.refin ? new Reflected64(p) : new Normal64(p));
+	}
+
+	/**
+	 * Size in bytes of the lookup-table used for these params
+	 *
+	 * @param p params of CRC
+	 * @return size of table (256 entries)
+	 */
+	static int tableSize(final Params p) {
+		if (p.width <= 8) {
+			return 256 * Byte.BYTES;
+		}
+		if (p.width <= 16) {
+			return 256 * Short.BYTES;
+		}
+		if (p.width <= 32) {
+			return 256 * Integer.BYTES;
+		}
+		return 256 * Long.BYTES;
+	}
+
+	/**
+	 * Return a 8 bits table (non-reflected are left-aligned)
+	 *
+	 * @param p params of CRC
+	 * @return table
+	 */
+	private static byte[] table8(final Params p) {
+		return CACHE8.get(p, (cached) -> true, (k, cached) -> {
+			final long[] t = GenericLookupTableCRC.generateTable(k);
+			final byte[] table = new byte[t.length];
+			for (int i = 0; i < t.length; i++) {
+				table[i] = (byte) (k.refin ? t[i] : (t[i] >>> 56));
+			}
+			return table;
+		});
+	}
+
+	/**
+	 * Return a 16 bits table (non-reflected are left-aligned)
+	 *
+	 * @param p params of CRC
+	 * @return table
+	 */
+	private static short[] table16(final Params p) {
+		return CACHE16.get(p, (cached) -> true, (k, cached) -> {
+			final long[] t = GenericLookupTableCRC.generateTable(k);
+			final short[] table = new short[t.length];
+			for (int i = 0; i < t.length; i++) {
+				table[i] = (short) (k.refin ? t[i] : (t[i] >>> 48));
+			}
+			return table;
+		});
+	}
+
+	/**
+	 * Return a 32 bits table (non-reflected are left-aligned)
+	 *
+	 * @param p params of CRC
+	 * @return table
+	 */
+	private static int[] table32(final Params p) {
+		return CACHE32.get(p, (cached) -> true, (k, cached) -> {
+			final long[] t = GenericLookupTableCRC.generateTable(k);
+			final int[] table = new int[t.length];
+			for (int i = 0; i < t.length; i++) {
+				table[i] = (int) (k.refin ? t[i] : (t[i] >>> 32));
+			}
+			return table;
+		});
+	}
+
+	/**
+	 * Convert a state ({@link #getState()}) into register (reflected if refin, right-aligned)
+	 */
+	protected final long register(final long state) {
+		final long reg = toRegister(p, state);
+		return (p.refin ? reverse(reg, p.width) : reg);
+	}
+
+	protected final long finish(final long reg) {
+		return ((reflectOut ? reverse(reg, p.width) : reg) ^ p.xorout) & p.mask;
+	}
+
+	@Override
+	public Params getParams() {
+		return p;
+	}
+
+	/**
+	 * Width &lt;= 8: the whole register is shifted out by each byte, so reflected and MSB-first use the same loop
+	 */
+	static final class Table8 extends SpecializedTableCRC {
+		private final byte[] table;
+		private final int shift;
+		private final int init;
+		private int crc;
+
+		Table8(final Params p) {
+			super(p);
+			this.table = table8(p);
+			this.shift = (p.refin ? 0 : 8 - p.width);
+			this.init = (int) (p.refin ? reverse(p.init, p.width) : (p.init << shift));
+			this.reset();
+		}
+
+		@Override
+		public void reset() {
+			crc = init;
+		}
+
+		@Override
+		public void update(final int b) {
+			crc = table[(crc ^ b) & 0xFF];
+		}
+
+		@Override
+		public void update(final byte[] buffer, int offset, final int length) {
+			final byte[] t = table;
+			int c = crc;
+			for (final int end = offset + length; offset < end; offset++) {
+				c = t[(c ^ buffer[offset]) & 0xFF];
+			}
+			crc = c;
+		}
+
+		@Override
+		public void update(final ByteBuffer buffer) {
+			if (buffer.hasArray()) {
+				super.update(buffer);
+				return;
+			}
+			// Direct or read-only: read in place, a word at a time
+			final ByteBuffer in = littleEndian(buffer);
+			final byte[] t = table;
+			int c = crc;
+			int offset = buffer.position();
+			final int limit = buffer.limit();
+			for (; limit - offset >= 8; offset += 8) {
+				final long w = in.getLong(offset);
+				for (int k = 0; k < 64; k += 8) {
+					c = t[(c ^ (int) (w >>> k)) & 0xFF];
+				}
+			}
+			for (; offset < limit; offset++) {
+				c = t[(c ^ in.get(offset)) & 0xFF];
+			}
+			crc = c;
+			buffer.position(limit);
+		}
+
+		@Override
+		public void restoreState(final long state) {
+			crc = (int) (register(state) << shift);
+		}
+
+		@Override
+		public long getValue() {
+			return finish((crc & 0xFF) >>> shift);
+		}
+	}
+
+	static final class Reflected16 extends SpecializedTableCRC {
+		private final short[] table;
+		private final int init;
+		private int crc;
+
+		Reflected16(final Params p) {
+			super(p);
+			this.table = table16(p);
+			this.init = (int) reverse(p.init, p.width);
+			this.reset();
+		}
+
+		@Override
+		public void reset() {
+			crc = init;
+		}
+
+		@Override
+		public void update(final int b) {
+			crc = (crc >>> 8) ^ (table[(crc ^ b) & 0xFF] & 0xFFFF);
+		}
+
+		@Override
+		public void update(final byte[] buffer, int offset, final int length) {
+			final short[] t = table;
+			int c = crc;
+			for (final int end = offset + length; offset < end; offset++) {
+				c = (c >>> 8) ^ (t[(c ^ buffer[offset]) & 0xFF] & 0xFFFF);
+			}
+			crc = c;
+		}
+
+		@Override
+		public void update(final ByteBuffer buffer) {
+			if (buffer.hasArray()) {
+				super.update(buffer);
+				return;
+			}
+			// Direct or read-only: read in place, a word at a time
+			final ByteBuffer in = littleEndian(buffer);
+			final short[] t = table;
+			int c = crc;
+			int offset = buffer.position();
+			final int limit = buffer.limit();
+			for (; limit - offset >= 8; offset += 8) {
+				final long w = in.getLong(offset);
+				for (int k = 0; k < 64; k += 8) {
+					c = (c >>> 8) ^ (t[(c ^ (int) (w >>> k)) & 0xFF] & 0xFFFF);
+				}
+			}
+			for (; offset < limit; offset++) {
+				c = (c >>> 8) ^ (t[(c ^ in.get(offset)) & 0xFF] & 0xFFFF);
+			}
+			crc = c;
+			buffer.position(limit);
+		}
+
+		@Override
+		public void restoreState(final long state) {
+			crc = (int) register(state);
+		}
+
+		@Override
+		public long getValue() {
+			return finish(crc);
+		}
+	}
+
+	static final class Normal16 extends SpecializedTableCRC {
+		private final short[] table;
+		private final int shift;
+		private final int init;
+		private int crc;
+
+		Normal16(final Params p) {
+			super(p);
+			this.table = table16(p);
+			this.shift = (16 - p.width);
+			this.init = (int) (p.init << shift);
+			this.reset();
+		}
+
+		@Override
+		public void reset() {
+			crc = init;
+		}
+
+		@Override
+		public void update(final int b) {
+			crc = ((crc << 8) ^ table[((crc >>> 8) ^ b) & 0xFF]) & 0xFFFF;
+		}
+
+		@Override
+		public void update(final byte[] buffer, int offset, final int length) {
+			final short[] t = table;
+			int c = crc;
+			for (final int end = offset + length; offset < end; offset++) {
+				c = ((c << 8) ^ t[((c >>> 8) ^ buffer[offset]) & 0xFF]) & 0xFFFF;
+			}
+			crc = c;
+		}
+
+		@Override
+		public void update(final ByteBuffer buffer) {
+			if (buffer.hasArray()) {
+				super.update(buffer);
+				return;
+			}
+			// Direct or read-only: read in place, a word at a time
+			final ByteBuffer in = littleEndian(buffer);
+			final short[] t = table;
+			int c = crc;
+			int offset = buffer.position();
+			final int limit = buffer.limit();
+			for (; limit - offset >= 8; offset += 8) {
+				final long w = in.getLong(offset);
+				for (int k = 0; k < 64; k += 8) {
+					c = ((c << 8) ^ t[((c >>> 8) ^ (int) (w >>> k)) & 0xFF]) & 0xFFFF;
+				}
+			}
+			for (; offset < limit; offset++) {
+				c = ((c << 8) ^ t[((c >>> 8) ^ in.get(offset)) & 0xFF]) & 0xFFFF;
+			}
+			crc = c;
+			buffer.position(limit);
+		}
+
+		@Override
+		public void restoreState(final long state) {
+			crc = (int) (register(state) << shift);
+		}
+
+		@Override
+		public long getValue() {
+			return finish(crc >>> shift);
+		}
+	}
+
+	static final class Reflected32 extends SpecializedTableCRC {
+		private final int[] table;
+		private final int init;
+		private int crc;
+
+		Reflected32(final Params p) {
+			super(p);
+			this.table = table32(p);
+			this.init = (int) reverse(p.init, p.width);
+			this.reset();
+		}
+
+		@Override
+		public void reset() {
+			crc = init;
+		}
+
+		@Override
+		public void update(final int b) {
+			crc = (crc >>> 8) ^ table[(crc ^ b) & 0xFF];
+		}
+
+		@Override
+		public void update(final byte[] buffer, int offset, final int length) {
+			final int[] t = table;
+			int c = crc;
+			for (final int end = offset + length; offset < end; offset++) {
+				c = (c >>> 8) ^ t[(c ^ buffer[offset]) & 0xFF];
+			}
+			crc = c;
+		}
+
+		@Override
+		public void update(final ByteBuffer buffer) {
+			if (buffer.hasArray()) {
+				super.update(buffer);
+				return;
+			}
+			// Direct or read-only: read in place, a word at a time
+			final ByteBuffer in = littleEndian(buffer);
+			final int[] t = table;
+			int c = crc;
+			int offset = buffer.position();
+			final int limit = buffer.limit();
+			for (; limit - offset >= 8; offset += 8) {
+				final long w = in.getLong(offset);
+				for (int k = 0; k < 64; k += 8) {
+					c = (c >>> 8) ^ t[(c ^ (int) (w >>> k)) & 0xFF];
+				}
+			}
+			for (; offset < limit; offset++) {
+				c = (c >>> 8) ^ t[(c ^ in.get(offset)) & 0xFF];
+			}
+			crc = c;
+			buffer.position(limit);
+		}
+
+		@Override
+		public void restoreState(final long state) {
+			crc = (int) register(state);
+		}
+
+		@Override
+		public long getValue() {
+			return finish(crc & 0xFFFFFFFFL);
+		}
+	}
+
+	static final class Normal32 extends SpecializedTableCRC {
+		private final int[] table;
+		private final int shift;
+		private final int init;
+		private int crc;
+
+		Normal32(final Params p) {
+			super(p);
+			this.table = table32(p);
+			this.shift = (32 - p.width);
+			this.init = (int) (p.init << shift);
+			this.reset();
+		}
+
+		@Override
+		public void reset() {
+			crc = init;
+		}
+
+		@Override
+		public void update(final int b) {
+			crc = (crc << 8) ^ table[((crc >>> 24) ^ b) & 0xFF];
+		}
+
+		@Override
+		public void update(final byte[] buffer, int offset, final int length) {
+			final int[] t = table;
+			int c = crc;
+			for (final int end = offset + length; offset < end; offset++) {
+				c = (c << 8) ^ t[((c >>> 24) ^ buffer[offset]) & 0xFF];
+			}
+			crc = c;
+		}
+
+		@Override
+		public void update(final ByteBuffer buffer) {
+			if (buffer.hasArray()) {
+				super.update(buffer);
+				return;
+			}
+			// Direct or read-only: read in place, a word at a time
+			final ByteBuffer in = littleEndian(buffer);
+			final int[] t = table;
+			int c = crc;
+			int offset = buffer.position();
+			final int limit = buffer.limit();
+			for (; limit - offset >= 8; offset += 8) {
+				final long w = in.getLong(offset);
+				for (int k = 0; k < 64; k += 8) {
+					c = (c << 8) ^ t[((c >>> 24) ^ (int) (w >>> k)) & 0xFF];
+				}
+			}
+			for (; offset < limit; offset++) {
+				c = (c << 8) ^ t[((c >>> 24) ^ in.get(offset)) & 0xFF];
+			}
+			crc = c;
+			buffer.position(limit);
+		}
+
+		@Override
+		public void restoreState(final long state) {
+			crc = (int) (register(state) << shift);
+		}
+
+		@Override
+		public long getValue() {
+			return finish((crc >>> shift) & 0xFFFFFFFFL);
+		}
+	}
+
+	static final class Reflected64 extends SpecializedTableCRC {
+		private final long[] table;
+		private final long init;
+		private long crc;
+
+		Reflected64(final Params p) {
+			super(p);
+			this.table = GenericLookupTableCRC.table(p);
+			this.init = reverse(p.init, p.width);
+			this.reset();
+		}
+
+		@Override
+		public void reset() {
+			crc = init;
+		}
+
+		@Override
+		public void update(final int b) {
+			crc = (crc >>> 8) ^ table[((int) crc ^ b) & 0xFF];
+		}
+
+		@Override
+		public void update(final byte[] buffer, int offset, final int length) {
+			final long[] t = table;
+			long c = crc;
+			for (final int end = offset + length; offset < end; offset++) {
+				c = (c >>> 8) ^ t[((int) c ^ buffer[offset]) & 0xFF];
+			}
+			crc = c;
+		}
+
+		@Override
+		public void update(final ByteBuffer buffer) {
+			if (buffer.hasArray()) {
+				super.update(buffer);
+				return;
+			}
+			// Direct or read-only: read in place, a word at a time
+			final ByteBuffer in = littleEndian(buffer);
+			final long[] t = table;
+			long c = crc;
+			int offset = buffer.position();
+			final int limit = buffer.limit();
+			for (; limit - offset >= 8; offset += 8) {
+				final long w = in.getLong(offset);
+				for (int k = 0; k < 64; k += 8) {
+					c = (c >>> 8) ^ t[((int) c ^ (int) (w >>> k)) & 0xFF];
+				}
+			}
+			for (; offset < limit; offset++) {
+				c = (c >>> 8) ^ t[((int) c ^ in.get(offset)) & 0xFF];
+			}
+			crc = c;
+			buffer.position(limit);
+		}
+
+		@Override
+		public void restoreState(final long state) {
+			crc = register(state);
+		}
+
+		@Override
+		public long getValue() {
+			return finish(crc);
+		}
+	}
+
+	static final class Normal64 extends SpecializedTableCRC {
+		private final long[] table;
+		private final int shift;
+		private final long init;
+		private long crc;
+
+		Normal64(final Params p) {
+			super(p);
+			this.table = GenericLookupTableCRC.table(p);
+			this.shift = (64 - p.width);
+			this.init = (p.init << shift);
+			this.reset();
+		}
+
+		@Override
+		public void reset() {
+			crc = init;
+		}
+
+		@Override
+		public void update(final int b) {
+			crc = (crc << 8) ^ table[((int) (crc >>> 56) ^ b) & 0xFF];
+		}
+
+		@Override
+		public void update(final byte[] buffer, int offset, final int length) {
+			final long[] t = table;
+			long c = crc;
+			for (final int end = offset + length; offset < end; offset++) {
+				c = (c << 8) ^ t[((int) (c >>> 56) ^ buffer[offset]) & 0xFF];
+			}
+			crc = c;
+		}
+
+		@Override
+		public void update(final ByteBuffer buffer) {
+			if (buffer.hasArray()) {
+				super.update(buffer);
+				return;
+			}
+			// Direct or read-only: read in place, a word at a time
+			final ByteBuffer in = littleEndian(buffer);
+			final long[] t = table;
+			long c = crc;
+			int offset = buffer.position();
+			final int limit = buffer.limit();
+			for (; limit - offset >= 8; offset += 8) {
+				final long w = in.getLong(offset);
+				for (int k = 0; k < 64; k += 8) {
+					c = (c << 8) ^ t[((int) (c >>> 56) ^ (int) (w >>> k)) & 0xFF];
+				}
+			}
+			for (; offset < limit; offset++) {
+				c = (c << 8) ^ t[((int) (c >>> 56) ^ in.get(offset)) & 0xFF];
+			}
+			crc = c;
+			buffer.position(limit);
+		}
+
+		@Override
+		public void restoreState(final long state) {
+			crc = (register(state) << shift);
+		}
+
+		@Override
+		public long getValue() {
+			return finish(crc >>> shift);
+		}
+	}
+
+	/**
+	 * Simple Test
+	 *
+	 * @param args ignored
+	 */
+	public static void main(final String[] args) {
+		final byte[] random = new byte[1021];
+		new Random(42).nextBytes(random);
+		final ByteBuffer direct = ByteBuffer.allocateDirect(random.length);
+		direct.put(random).flip();
+		for (final Preset preset : Preset.values()) {
+			System.out.println("Testing: " + preset.name());
+			final CRC crc = newInstance(preset.params);
+			crc.update(CRC.TEST_VALUE.getBytes());
+			final long v = crc.getValue();
+			if (preset.params.check != v) {
+				throw new InvalidParameterException("Invalid check(" + preset.name() + ")" //
+						+ " expected: " + Long.toHexString(preset.params.check) //
+						+ " calculated: " + Long.toHexString(v));
+			}
+			final CRC ref = new GenericCalculateCRC(preset.params);
+			ref.update(random);
+			crc.reset();
+			crc.update(random);
+			final long bulk = crc.getValue();
+			crc.reset();
+			crc.update(direct.duplicate());
+			if ((ref.getValue() != bulk) || (ref.getValue() != crc.getValue())) {
+				throw new InvalidParameterException("Invalid bulk(" + preset.name() + ")" //
+						+ " expected: " + Long.toHexString(ref.getValue()) //
+						+ " calculated: " + Long.toHexString(bulk) + "/" + Long.toHexString(crc.getValue()));
+			}
+		}
+		long compact = 0, wide = 0;
+		for (final Preset preset : Preset.values()) {
+			compact += tableSize(preset.params);
+			wide += 256 * Long.BYTES;
+			final int bytes = Engine.TABLE.tableBytes(preset.params);
+			if ((bytes != tableSize(preset.params)) && (bytes != 0)) {
+				throw new InvalidParameterException("Invalid tableBytes(" + preset.name() + "): " + bytes);
+			}
+		}
+		System.out.println("Table memory (" + Preset.values().length + " presets): " + compact + " bytes" //
+				+ " (with long[256]: " + wide + " bytes)");
+		System.out.println("DONE: All right!");
+	}
+}
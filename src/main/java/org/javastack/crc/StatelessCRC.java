@@ -0,0 +1,343 @@
+package org.javastack.crc;
+
+import static org.javastack.crc.GenericLookupTableCRC.getLongBE;
+import static org.javastack.crc.GenericLookupTableCRC.getLongLE;
+import static org.javastack.crc.GenericLookupTableCRC.sliceNormal8;
+import static org.javastack.crc.GenericLookupTableCRC.sliceReflected8;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.InvalidParameterException;
+import java.util.Random;
+
+/**
+ * Stateless CRC functions (Slicing-by-8 lookup-tables): the register (state) is owned by caller as a primitive
+ * long, so it can be kept in locals, fields or arrays, and updated with CAS, without allocation or a mutable
+ * {@link CRC} object. Instances are immutable and thread-safe.
+ * <p>
+ * State is opaque (internal register of engine), must be created with {@link #initial()} and converted to the CRC
+ * value with {@link #finish(long)}, only with the same {@link Params}.
+ *
+ * @see Preset#update(long, byte[], int, int)
+ * @see GenericLookupTableCRC
+ */
+public final class StatelessCRC {
+	private final Params p;
+	private final long[][] t;
+	/**
+	 * Non-reflected CRCs are processed left-aligned in a 64 bits register (MSB of crc at bit 63)
+	 */
+	private final int shift;
+	private final long init;
+	/**
+	 * Messages interleaved in batch
+	 */
+	private static final int LANES = 4;
+
+	public StatelessCRC(final Params p) {
+		this.p = p;
+		this.t = GenericLookupTableCRC.tables(p, 8);
+		this.shift = (p.refin ? 0 : 64 - p.width);
+		this.init = (p.refin) ? CRC.reverse(p.init, p.width) : (p.init << shift);
+	}
+
+	/**
+	 * Initial state
+	 *
+	 * @return state
+	 */
+	public long initial() {
+		return init;
+	}
+
+	/**
+	 * Update state with one byte
+	 *
+	 * @param state current state
+	 * @param b byte (low 8 bits)
+	 * @return new state
+	 */
+	public long update(final long state, final int b) {
+		if (p.refin) {
+			return ((state >>> 8) ^ t[0][(b ^ (int) state) & 0xFF]);
+		}
+		return t[0][(b ^ (int) (state >>> 56)) & 0xFF] ^ (state << 8);
+	}
+
+	/**
+	 * Update state with a buffer
+	 *
+	 * @param state current state
+	 * @param buffer input
+	 * @param offset in buffer
+	 * @param length of data
+	 * @return new state
+	 */
+	public long update(long state, final byte[] buffer, int offset, int length) {
+		final long[] t0 = t[0];
+		if (p.refin) {
+			for (; length >= 8; length -= 8, offset += 8) {
+				state = sliceReflected8(t, state ^ getLongLE(buffer, offset));
+			}
+			for (; length > 0; length--) {
+				state = ((state >>> 8) ^ t0[(buffer[offset++] ^ (int) state) & 0xFF]);
+			}
+		} else {
+			for (; length >= 8; length -= 8, offset += 8) {
+				state = sliceNormal8(t, state ^ getLongBE(buffer, offset));
+			}
+			for (; length > 0; length--) {
+				state = t0[(buffer[offset++] ^ (int) (state >>> 56)) & 0xFF] ^ (state << 8);
+			}
+		}
+		return state;
+	}
+
+	/**
+	 * Update state with remaining bytes of buffer (position is moved to limit)
+	 *
+	 * @param state current state
+	 * @param buffer input
+	 * @return new state
+	 */
+	public long update(long state, final ByteBuffer buffer) {
+		final int limit = buffer.limit();
+		if (buffer.hasArray()) {
+			state = update(state, buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+		} else {
+			for (int i = buffer.position(); i < limit; i++) {
+				state = update(state, buffer.get(i));
+			}
+		}
+		buffer.position(limit);
+		return state;
+	}
+
+	/**
+	 * Compute CRC of many independent messages in one call, without allocation. Messages are processed 4 at a time
+	 * interleaved in the same loop (independent dependency chains), so lookups of one message overlap with the
+	 * others, much faster than a reset/update/getValue per message for small messages (100-500 bytes).
+	 *
+	 * @param data input
+	 * @param offsets of each message in data
+	 * @param lengths of each message
+	 * @param out crc value of each message
+	 * @throws InvalidParameterException if array sizes are invalid
+	 */
+	public void computeBatch(final byte[] data, final int[] offsets, final int[] lengths, final long[] out)
+			throws InvalidParameterException {
+		computeBatch(data, 0, offsets, lengths, out);
+	}
+
+	/**
+	 * Compute CRC of many independent messages in one call, without allocation (position and limit of buffer are
+	 * not used nor modified).
+	 *
+	 * @param data input
+	 * @param offsets of each message in buffer (absolute index)
+	 * @param lengths of each message
+	 * @param out crc value of each message
+	 * @throws InvalidParameterException if array sizes are invalid
+	 * @see #computeBatch(byte[], int[], int[], long[])
+	 */
+	public void computeBatch(final ByteBuffer data, final int[] offsets, final int[] lengths, final long[] out)
+			throws InvalidParameterException {
+		if (data.hasArray()) {
+			computeBatch(data.array(), data.arrayOffset(), offsets, lengths, out);
+			return;
+		}
+		final int n = checkBatch(offsets, lengths, out);
+		int i = 0;
+		for (; i + LANES <= n; i += LANES) {
+			batch4(data, offsets, lengths, out, i);
+		}
+		for (; i < n; i++) {
+			out[i] = finish(update(init, data, offsets[i], lengths[i]));
+		}
+	}
+
+	final void computeBatch(final byte[] data, final int base, final int[] offsets, final int[] lengths,
+			final long[] out) throws InvalidParameterException {
+		final int n = checkBatch(offsets, lengths, out);
+		int i = 0;
+		for (; i + LANES <= n; i += LANES) {
+			batch4(data, base, offsets, lengths, out, i);
+		}
+		for (; i < n; i++) {
+			out[i] = finish(update(init, data, base + offsets[i], lengths[i]));
+		}
+	}
+
+	static final int checkBatch(final int[] offsets, final int[] lengths, final long[] out)
+			throws InvalidParameterException {
+		final int n = offsets.length;
+		if ((lengths.length != n) || (out.length < n)) {
+			throw new InvalidParameterException("Invalid batch sizes: offsets=" + n + " lengths=" + lengths.length
+					+ " out=" + out.length);
+		}
+		return n;
+	}
+
+	private final void batch4(final byte[] data, final int base, final int[] offsets, final int[] lengths,
+			final long[] out, final int i) {
+		final long[][] t = this.t;
+		final int o0 = base + offsets[i], o1 = base + offsets[i + 1];
+		final int o2 = base + offsets[i + 2], o3 = base + offsets[i + 3];
+		final int l0 = lengths[i], l1 = lengths[i + 1], l2 = lengths[i + 2], l3 = lengths[i + 3];
+		final int common = Math.min(Math.min(l0, l1), Math.min(l2, l3)) & ~7;
+		long c0 = init, c1 = init, c2 = init, c3 = init;
+		if (p.refin) {
+			for (int k = 0; k < common; k += 8) {
+				c0 = sliceReflected8(t, c0 ^ getLongLE(data, o0 + k));
+				c1 = sliceReflected8(t, c1 ^ getLongLE(data, o1 + k));
+				c2 = sliceReflected8(t, c2 ^ getLongLE(data, o2 + k));
+				c3 = sliceReflected8(t, c3 ^ getLongLE(data, o3 + k));
+			}
+		} else {
+			for (int k = 0; k < common; k += 8) {
+				c0 = sliceNormal8(t, c0 ^ getLongBE(data, o0 + k));
+				c1 = sliceNormal8(t, c1 ^ getLongBE(data, o1 + k));
+				c2 = sliceNormal8(t, c2 ^ getLongBE(data, o2 + k));
+				c3 = sliceNormal8(t, c3 ^ getLongBE(data, o3 + k));
+			}
+		}
+		out[i] = finish(update(c0, data, o0 + common, l0 - common));
+		out[i + 1] = finish(update(c1, data, o1 + common, l1 - common));
+		out[i + 2] = finish(update(c2, data, o2 + common, l2 - common));
+		out[i + 3] = finish(update(c3, data, o3 + common, l3 - common));
+	}
+
+	private final void batch4(final ByteBuffer data, final int[] offsets, final int[] lengths, final long[] out,
+			final int i) {
+		final long[][] t = this.t;
+		final int o0 = offsets[i], o1 = offsets[i + 1], o2 = offsets[i + 2], o3 = offsets[i + 3];
+		final int l0 = lengths[i], l1 = lengths[i + 1], l2 = lengths[i + 2], l3 = lengths[i + 3];
+		final int common = Math.min(Math.min(l0, l1), Math.min(l2, l3)) & ~7;
+		long c0 = init, c1 = init, c2 = init, c3 = init;
+		// absolute getLong uses order of buffer, swap if it is not the order of engine
+		final boolean swap = ((data.order() == ByteOrder.BIG_ENDIAN) == p.refin);
+		if (p.refin) {
+			for (int k = 0; k < common; k += 8) {
+				c0 = sliceReflected8(t, c0 ^ getLong(data, o0 + k, swap));
+				c1 = sliceReflected8(t, c1 ^ getLong(data, o1 + k, swap));
+				c2 = sliceReflected8(t, c2 ^ getLong(data, o2 + k, swap));
+				c3 = sliceReflected8(t, c3 ^ getLong(data, o3 + k, swap));
+			}
+		} else {
+			for (int k = 0; k < common; k += 8) {
+				c0 = sliceNormal8(t, c0 ^ getLong(data, o0 + k, swap));
+				c1 = sliceNormal8(t, c1 ^ getLong(data, o1 + k, swap));
+				c2 = sliceNormal8(t, c2 ^ getLong(data, o2 + k, swap));
+				c3 = sliceNormal8(t, c3 ^ getLong(data, o3 + k, swap));
+			}
+		}
+		out[i] = finish(update(c0, data, o0 + common, l0 - common));
+		out[i + 1] = finish(update(c1, data, o1 + common, l1 - common));
+		out[i + 2] = finish(update(c2, data, o2 + common, l2 - common));
+		out[i + 3] = finish(update(c3, data, o3 + common, l3 - common));
+	}
+
+	private static final long getLong(final ByteBuffer data, final int i, final boolean swap) {
+		final long v = data.getLong(i);
+		return (swap ? Long.reverseBytes(v) : v);
+	}
+
+	private final long update(long state, final ByteBuffer data, final int offset, final int length) {
+		for (int i = offset, end = offset + length; i < end; i++) {
+			state = update(state, data.get(i));
+		}
+		return state;
+	}
+
+	/**
+	 * Convert state to CRC value
+	 *
+	 * @param state current state
+	 * @return crc value
+	 */
+	public long finish(final long state) {
+		final long reg = (state >>> shift);
+		return (((p.refout != p.refin) ? CRC.reverse(reg, p.width) : reg) ^ p.xorout) & p.mask;
+	}
+
+	/**
+	 * Params of CRC
+	 *
+	 * @return params
+	 */
+	public Params getParams() {
+		return p;
+	}
+
+	/**
+	 * Simple Test
+	 *
+	 * @param args ignored
+	 */
+	public static void main(final String[] args) {
+		final byte[] random = new byte[1021];
+		new Random(42).nextBytes(random);
+		for (final Preset preset : Preset.values()) {
+			System.out.println("Testing: " + preset.name());
+			final long check = preset.finish(preset.update(preset.initial(), CRC.TEST_VALUE.getBytes(), 0, 9));
+			if (preset.params.check != check) {
+				throw new InvalidParameterException("Invalid check(" + preset.name() + ")" //
+						+ " expected: " + Long.toHexString(preset.params.check) //
+						+ " calculated: " + Long.toHexString(check));
+			}
+			final CRC ref = new GenericCalculateCRC(preset.params);
+			ref.update(random);
+			long state = preset.initial();
+			state = preset.update(state, random, 0, 100);
+			state = preset.update(state, random[100]);
+			state = preset.update(state, random, 101, random.length - 101);
+			if (ref.getValue() != preset.finish(state)) {
+				throw new InvalidParameterException("Invalid bulk(" + preset.name() + ")" //
+						+ " expected: " + Long.toHexString(ref.getValue()) //
+						+ " calculated: " + Long.toHexString(preset.finish(state)));
+			}
+			// batch of messages with distinct lengths (heap, direct and both byte orders)
+			final int n = 37;
+			final int[] offsets = new int[n], lengths = new int[n];
+			final long[] out = new long[n];
+			final ByteBuffer direct = ByteBuffer.allocateDirect(random.length).put(random);
+			final byte[] shifted = new byte[random.length + 1]; // heap buffer with arrayOffset
+			System.arraycopy(random, 0, shifted, 1, random.length);
+			for (int i = 0; i < n; i++) {
+				lengths[i] = (i * 29) % 211;
+				offsets[i] = (i * 23) % (random.length - lengths[i]);
+			}
+			for (int k = 0; k < 6; k++) {
+				switch (k) {
+					case 0:
+						preset.computeBatch(random, offsets, lengths, out);
+						break;
+					case 1:
+						preset.computeBatch(ByteBuffer.wrap(shifted, 1, random.length).slice(), offsets, lengths, out);
+						break;
+					case 2:
+						preset.computeBatch(direct, offsets, lengths, out);
+						break;
+					case 3:
+						preset.stateless().computeBatch(random, offsets, lengths, out);
+						break;
+					default:
+						direct.order((k == 4) ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+						preset.stateless().computeBatch(direct, offsets, lengths, out);
+						break;
+				}
+				for (int i = 0; i < n; i++) {
+					ref.reset();
+					ref.update(random, offsets[i], lengths[i]);
+					if (ref.getValue() != out[i]) {
+						throw new InvalidParameterException("Invalid batch(" + preset.name() + ")" //
+								+ " mode: " + k + " message: " + i //
+								+ " expected: " + Long.toHexString(ref.getValue()) //
+								+ " calculated: " + Long.toHexString(out[i]));
+					}
+				}
+			}
+		}
+		System.out.println("DONE: All right!");
+	}
+}
@@ -0,0 +1,230 @@
+package org.javastack.crc;
+
+import java.util.HashSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+
+/**
+ * Cache of lookup-tables by {@link Params}.
+ * <p>
+ * Reads are lock-free, generation is single-flight and runs outside of map locks (a pending task is published with
+ * putIfAbsent, only the winner runs it and concurrent callers for the same params wait for it). Tables of
+ * {@link Preset} are pinned, tables of custom params are bounded and evicted in FIFO order (configurable with system
+ * property <code>org.javastack.crc.cache.maxCustomEntries</code>, default {@value #DEFAULT_MAX_CUSTOM_ENTRIES}).
+ *
+ * @param <T> type of table
+ */
+final class TableCache<T> {
+	/**
+	 * Default max number of custom params in each cache
+	 */
+	static final int DEFAULT_MAX_CUSTOM_ENTRIES = 256;
+
+	/**
+	 * Max number of custom (non {@link Preset}) params in each cache
+	 */
+	static final int MAX_CUSTOM_ENTRIES = Math.max(0,
+			Integer.getInteger("org.javastack.crc.cache.maxCustomEntries", DEFAULT_MAX_CUSTOM_ENTRIES));
+
+	private static final HashSet<Params> PINNED = new HashSet<Params>();
+
+	static {
+		for (final Preset preset : Preset.values()) {
+			PINNED.add(preset.params);
+		}
+	}
+
+	private final ConcurrentHashMap<Params, FutureTask<T>> map = new ConcurrentHashMap<Params, FutureTask<T>>();
+	private final ConcurrentLinkedQueue<Params> customQueue = new ConcurrentLinkedQueue<Params>();
+	private final AtomicInteger customCount = new AtomicInteger();
+
+	/**
+	 * Get table from cache, or generate it if not found (or not valid)
+	 *
+	 * @param p params of CRC
+	 * @param valid check if cached table is valid (example: has enough slices)
+	 * @param generator called with params and old table (null if not cached) to generate a new one
+	 * @return table
+	 */
+	T get(final Params p, final Predicate<T> valid, final BiFunction<Params, T, T> generator) {
+		FutureTask<T> future = map.get(p);
+		while (true) {
+			if (future == null) {
+				// publish pending generation, only the winner runs it (outside of map locks)
+				final FutureTask<T> task = new FutureTask<T>(() -> generator.apply(p, null));
+				future = map.putIfAbsent(p, task);
+				if (future == null) {
+					task.run();
+					final T table = await(p, task);
+					if (!PINNED.contains(p)) {
+						customQueue.add(p);
+						customCount.incrementAndGet();
+						evict();
+					}
+					return table;
+				}
+			}
+			final T cached = await(p, future);
+			if (valid.test(cached)) {
+				return cached;
+			}
+			// regenerate from old table, same single-flight publication
+			final FutureTask<T> task = new FutureTask<T>(() -> generator.apply(p, cached));
+			if (map.replace(p, future, task)) {
+				task.run();
+				return await(p, task);
+			}
+			future = map.get(p);
+		}
+	}
+
+	/**
+	 * Wait for a generation (uninterruptibly), failed generations are removed so next caller retries
+	 */
+	private T await(final Params p, final FutureTask<T> future) {
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					return future.get();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				} catch (ExecutionException e) {
+					map.remove(p, future);
+					final Throwable cause = e.getCause();
+					if (cause instanceof RuntimeException) {
+						throw (RuntimeException) cause;
+					}
+					if (cause instanceof Error) {
+						throw (Error) cause;
+					}
+					throw new IllegalStateException(cause);
+				}
+			}
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Number of cached tables
+	 *
+	 * @return size
+	 */
+	int size() {
+		return map.size();
+	}
+
+	private void evict() {
+		while (customCount.get() > MAX_CUSTOM_ENTRIES) {
+			final Params k = customQueue.poll();
+			if (k == null) {
+				break;
+			}
+			customCount.decrementAndGet();
+			map.remove(k);
+		}
+	}
+
+	/**
+	 * Simple Test
+	 *
+	 * @param args ignored
+	 * @throws InterruptedException if interrupted
+	 */
+	public static void main(final String[] args) throws InterruptedException {
+		final TableCache<long[]> cache = new TableCache<long[]>();
+		final AtomicInteger generated = new AtomicInteger();
+		final AtomicInteger mismatches = new AtomicInteger();
+		final ConcurrentHashMap<Params, long[]> seen = new ConcurrentHashMap<Params, long[]>();
+		// Single-flight: many threads, one generation, same table
+		final Thread[] threads = new Thread[8];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread(() -> {
+				for (final Preset preset : Preset.values()) {
+					final long[] t = cache.get(preset.params, (x) -> true, (k, x) -> {
+						generated.incrementAndGet();
+						return GenericLookupTableCRC.table(k);
+					});
+					final long[] prev = seen.putIfAbsent(preset.params, t);
+					if ((prev != null) && (prev != t)) {
+						mismatches.incrementAndGet();
+					}
+				}
+			});
+			threads[i].start();
+		}
+		for (final Thread t : threads) {
+			t.join();
+		}
+		if ((mismatches.get() != 0) || (generated.get() != Preset.values().length)
+				|| (cache.size() != Preset.values().length)) {
+			throw new IllegalStateException("Invalid generations: " + generated.get() + " mismatches: "
+					+ mismatches.get());
+		}
+		final Params base = Preset.CRC_32_ISO_HDLC.params;
+		// Invalid tables are regenerated
+		final Params first = Preset.values()[0].params;
+		final long[] old = cache.get(first, (t) -> true, null);
+		final long[] regen = cache.get(first, (t) -> t != old, (k, t) -> {
+			if (t != old) {
+				throw new IllegalStateException("Invalid old table");
+			}
+			return new long[0];
+		});
+		if ((regen == old) || (cache.get(first, (t) -> true, null) != regen)) {
+			throw new IllegalStateException("Invalid regeneration");
+		}
+		// Single-flight regeneration: many threads, one regeneration
+		final AtomicInteger regenerated = new AtomicInteger();
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread(() -> {
+				cache.get(first, (t) -> t.length > 0, (k, t) -> {
+					regenerated.incrementAndGet();
+					try {
+						Thread.sleep(50); // slow generation
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					return new long[1];
+				});
+			});
+			threads[i].start();
+		}
+		for (final Thread t : threads) {
+			t.join();
+		}
+		if ((regenerated.get() != 1) || (cache.get(first, (t) -> true, null).length != 1)) {
+			throw new IllegalStateException("Invalid regenerations: " + regenerated.get());
+		}
+		// Failed generation is not cached
+		final Params failed = new Params("FAILED", base.width, base.poly, 0, -1, base.refin, base.refout, 0);
+		try {
+			cache.get(failed, (t) -> true, (k, t) -> {
+				throw new IllegalArgumentException("expected");
+			});
+			throw new IllegalStateException("Generation error not propagated");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		if (cache.get(failed, (t) -> true, (k, t) -> new long[2]).length != 2) {
+			throw new IllegalStateException("Invalid retry after failed generation");
+		}
+		// Custom params are bounded, presets are pinned
+		for (int i = 0; i < MAX_CUSTOM_ENTRIES * 2; i++) {
+			final Params p = new Params("CUSTOM-" + i, base.width, base.poly, 0, i, base.refin, base.refout, 0);
+			cache.get(p, (t) -> true, (k, t) -> new long[0]);
+		}
+		if (cache.size() != (Preset.values().length + MAX_CUSTOM_ENTRIES)) {
+			throw new IllegalStateException("Invalid size: " + cache.size());
+		}
+		System.out.println("DONE: All right!");
+	}
+}
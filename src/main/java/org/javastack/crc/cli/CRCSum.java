@@ -0,0 +1,214 @@
+package org.javastack.crc.cli;
+
+import static java.lang.System.err;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.javastack.crc.CRC;
+import org.javastack.crc.Engine;
+import org.javastack.crc.FileCRC;
+import org.javastack.crc.MultiCRC;
+import org.javastack.crc.Preset;
+
+/**
+ * Multi-file checksum manifests (like crcsum/sha256sum), computed and verified with a pool of workers.
+ * <p>
+ * Manifest format, a header with the presets (in column order) and one line per file:
+ * 
+ * <pre>
+ * # presets: &lt;name&gt;[,&lt;name&gt;...]
+ * &lt;crc&gt;[ &lt;crc&gt;...]  &lt;path&gt;
+ * </pre>
+ */
+class CRCSum {
+	private static final String SEPARATOR = "  ";
+	private static final String PRESETS_HEADER = "# presets: ";
+
+	private final Preset[] presets;
+	private final int threads;
+
+	CRCSum(final Preset[] presets, final int threads) {
+		this.presets = presets;
+		this.threads = threads;
+	}
+
+	/**
+	 * Walk input paths (files or directories) and write manifest
+	 *
+	 * @param inputs files or directories
+	 * @param output manifest output
+	 * @return number of errors
+	 * @throws IOException if error walking directories
+	 * @throws InterruptedException if interrupted
+	 */
+	int write(final List<String> inputs, final PrintStream output) throws IOException, InterruptedException {
+		final List<Path> files = new ArrayList<Path>();
+		for (final String input : inputs) {
+			try (Stream<Path> walk = Files.walk(Paths.get(input))) {
+				final List<Path> found = walk.filter(Files::isRegularFile).collect(Collectors.toList());
+				Collections.sort(found);
+				files.addAll(found);
+			}
+		}
+		output.println(PRESETS_HEADER + names(presets));
+		final ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			final List<Future<long[]>> results = new ArrayList<Future<long[]>>(files.size());
+			for (final Path file : files) {
+				results.add(pool.submit(new FileTask(file)));
+			}
+			int errors = 0;
+			for (int i = 0; i < files.size(); i++) {
+				try {
+					output.println(format(results.get(i).get()) + SEPARATOR + files.get(i));
+				} catch (ExecutionException e) {
+					err.println("ERROR: " + files.get(i) + ": " + String.valueOf(e.getCause()));
+					errors++;
+				}
+			}
+			output.flush();
+			return errors;
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Verify files listed in a manifest
+	 *
+	 * @param manifest to read
+	 * @param output for results
+	 * @return number of failed or unreadable files
+	 * @throws IOException if error reading manifest, presets of header are not the requested or a line has a
+	 *             different number of CRCs
+	 * @throws InterruptedException if interrupted
+	 */
+	int check(final Path manifest, final PrintStream output) throws IOException, InterruptedException {
+		final List<String> wanted = new ArrayList<String>();
+		final List<Path> files = new ArrayList<Path>();
+		try (BufferedReader in = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+			String line;
+			int lineNumber = 0;
+			while ((line = in.readLine()) != null) {
+				lineNumber++;
+				if (line.startsWith(PRESETS_HEADER)) {
+					final String found = line.substring(PRESETS_HEADER.length()).trim();
+					if (!found.equals(names(presets))) {
+						throw new IOException("Manifest presets (" + found + ") do not match requested presets (" //
+								+ names(presets) + ")");
+					}
+					continue;
+				}
+				final int idx = line.indexOf(SEPARATOR);
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				if (idx <= 0) {
+					throw new IOException("Invalid manifest line " + lineNumber + ": " + line);
+				}
+				final String crcs = line.substring(0, idx);
+				final int columns = crcs.split(" ").length;
+				if (columns != presets.length) {
+					throw new IOException("Invalid manifest line " + lineNumber + ": " + columns + " CRCs found, " //
+							+ presets.length + " expected (" + names(presets) + ")");
+				}
+				wanted.add(crcs);
+				files.add(Paths.get(line.substring(idx + SEPARATOR.length())));
+			}
+		}
+		final ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			final List<Future<long[]>> results = new ArrayList<Future<long[]>>(files.size());
+			for (final Path file : files) {
+				results.add(pool.submit(new FileTask(file)));
+			}
+			int failed = 0;
+			for (int i = 0; i < files.size(); i++) {
+				try {
+					final boolean ok = format(results.get(i).get()).equalsIgnoreCase(wanted.get(i));
+					output.println(files.get(i) + ": " + (ok ? "OK" : "FAILED"));
+					if (!ok) {
+						failed++;
+					}
+				} catch (ExecutionException e) {
+					output.println(files.get(i) + ": FAILED open or read (" + String.valueOf(e.getCause()) + ")");
+					failed++;
+				}
+			}
+			output.println("checked=" + files.size() + " failed=" + failed);
+			output.flush();
+			return failed;
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private static String names(final Preset[] presets) {
+		final StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < presets.length; i++) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			sb.append(presets[i].name());
+		}
+		return sb.toString();
+	}
+
+	private String format(final long[] values) {
+		final StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < values.length; i++) {
+			if (i > 0) {
+				sb.append(' ');
+			}
+			final int digits = (presets[i].params.width + 3) >>> 2;
+			final String hex = Long.toHexString(values[i]);
+			for (int j = hex.length(); j < digits; j++) {
+				sb.append('0');
+			}
+			sb.append(hex);
+		}
+		return sb.toString();
+	}
+
+	private class FileTask implements Callable<long[]> {
+		private final Path file;
+
+		FileTask(final Path file) {
+			this.file = file;
+		}
+
+		@Override
+		public long[] call() throws IOException {
+			final long[] values = new long[presets.length];
+			if (presets.length == 1) {
+				final CRC crc = presets[0].getInstance(Engine.AUTO);
+				FileCRC.update(crc, file, FileCRC.DEFAULT_WINDOW_SIZE);
+				values[0] = crc.getValue();
+				return values;
+			}
+			// single pass over file for all CRCs
+			final MultiCRC multi = new MultiCRC(presets);
+			FileCRC.update(multi, file, FileCRC.DEFAULT_WINDOW_SIZE);
+			for (int i = 0; i < presets.length; i++) {
+				values[i] = multi.getValue(presets[i]);
+			}
+			return values;
+		}
+	}
+}
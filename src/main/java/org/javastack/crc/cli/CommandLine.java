@@ -3,13 +3,38 @@ package org.javastack.crc.cli;
 import static java.lang.System.err;
 import static java.lang.System.out;
 
+import java.io.BufferedReader;
 import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
 
+import org.javastack.crc.BlockCRCIndex;
 import org.javastack.crc.CRC;
+import org.javastack.crc.CRCIdentifier;
+import org.javastack.crc.Engine;
+import org.javastack.crc.FileCRC;
+import org.javastack.crc.MultiCRC;
+import org.javastack.crc.Params;
+import org.javastack.crc.PipelinedFileCRC;
 import org.javastack.crc.Preset;
 
 public class CommandLine {
+	private static final String STDIN = "-";
+	private static final int DEFAULT_BUFFER_SIZE = (1 << 20);
+
 	private static void usage() {
 		out.println(CommandLine.class.getCanonicalName() + " <command> [parameters]");
 		out.println("List of commands:");
@@ -18,12 +43,23 @@ public class CommandLine {
 		out.println("\t" + "search <CRC-NAME>" + "\t" + ": search CRCs by partial name");
 		out.println("\t" + "string <CRC-NAME> <--hex|--ascii|--latin1|--utf8> <INPUT-STRING>" + "\t"
 				+ ": compute CRC from string");
-		out.println("\t" + "file <CRC-NAME> <FILE-NAME>" + "\t" + ": compute CRC of a file");
+		out.println("\t" + "file <CRC-NAME> [--mmap|--async] [--buffer-size <SIZE>] <FILE-NAME|->" + "\t"
+				+ ": compute CRC of a file (- for stdin)");
+		out.println("\t" + "file <--all|--presets <CRC-NAME,CRC-NAME...>> [--mmap] [--buffer-size <SIZE>] <FILE-NAME|->"
+				+ "\t" + ": compute several CRCs of a file in a single pass");
+		out.println("\t" + "index <CRC-NAME> [--block-size <SIZE>] [--verify] <FILE-NAME>" + "\t"
+				+ ": create/refresh (or verify) block CRC index of a file (FILE-NAME" + BlockCRCIndex.EXTENSION + ")");
+		out.println("\t" + "sum <CRC-NAME[,CRC-NAME...]> [--threads <N>] [--output <MANIFEST>] <PATH...>" + "\t"
+				+ ": compute CRCs of files/directories (recursive) and write a manifest");
+		out.println("\t" + "sum <CRC-NAME[,CRC-NAME...]> [--threads <N>] --check <MANIFEST>" + "\t"
+				+ ": verify files listed in a manifest");
+		out.println("\t" + "identify [--width <BITS>] [--threads <N>] <SAMPLES-FILE|->" + "\t"
+				+ ": identify CRC from samples (lines: <HEX-MESSAGE> <HEX-CRC>), search params if --width");
 		out.println();
 	}
 
 	private static void computeFile(final String crcName, //
-			final String fileName) {
+			final String fileName, final boolean mmap, final boolean async, final int bufferSize) {
 		final Preset ps;
 		try {
 			ps = Preset.valueOf(crcName);
@@ -31,24 +67,310 @@ public class CommandLine {
 			err.println("ERROR: " + crcName + " not found");
 			return;
 		}
+		final boolean stdin = STDIN.equals(fileName);
+		if (mmap && stdin) {
+			err.println("ERROR: --mmap not supported with stdin");
+			return;
+		}
+		if (mmap && async) {
+			err.println("ERROR: --mmap and --async are exclusive");
+			return;
+		}
 		out.println("Computing crcName=" + crcName //
 				+ " inputFileName=" + fileName);
-		final CRC crc = ps.getInstance(true); // use lookup-table
-		try (FileInputStream fis = new FileInputStream(fileName)) {
-			while (true) {
-				final byte[] buf = new byte[4096];
-				final int len = fis.read(buf, 0, buf.length);
-				if (len < 0) {
+		final long begin = System.nanoTime();
+		final CRC crc = ps.getInstance(Engine.AUTO); // fastest for bulk
+		long total = 0;
+		if (mmap) {
+			try {
+				total = FileCRC.update(crc, Paths.get(fileName), FileCRC.DEFAULT_WINDOW_SIZE);
+			} catch (Exception e) {
+				err.println("ERROR: " + String.valueOf(e));
+				return;
+			}
+		} else if (async) {
+			try (ReadableByteChannel ch = (stdin ? Channels.newChannel(System.in)
+					: FileChannel.open(Paths.get(fileName), StandardOpenOption.READ))) {
+				total = PipelinedFileCRC.update(crc, ch, bufferSize, PipelinedFileCRC.DEFAULT_BUFFERS);
+			} catch (Exception e) {
+				err.println("ERROR: " + String.valueOf(e));
+				return;
+			}
+		} else {
+			try (InputStream is = (stdin ? System.in : new FileInputStream(fileName))) {
+				final byte[] buf = new byte[bufferSize];
+				while (true) {
+					final int len = is.read(buf, 0, buf.length);
+					if (len < 0) {
+						break;
+					} else if (len > 0) {
+						crc.update(buf, 0, len);
+						total += len;
+					}
+				}
+			} catch (Exception e) {
+				err.println("ERROR: " + String.valueOf(e));
+				return;
+			}
+		}
+		final long end = System.nanoTime();
+		out.println("crc(hex)=" + Long.toHexString(crc.getValue()));
+		printThroughput(total, end - begin);
+	}
+
+	private static void computeFileMulti(final Preset[] presets, //
+			final String fileName, final boolean mmap, final boolean async, final int bufferSize) {
+		final boolean stdin = STDIN.equals(fileName);
+		if (mmap && stdin) {
+			err.println("ERROR: --mmap not supported with stdin");
+			return;
+		}
+		if (async) {
+			err.println("ERROR: --async not supported with multiple CRCs");
+			return;
+		}
+		out.println("Computing crcs=" + presets.length //
+				+ " inputFileName=" + fileName);
+		final long begin = System.nanoTime();
+		final MultiCRC multi = new MultiCRC(presets);
+		long total = 0;
+		if (mmap) {
+			try {
+				total = FileCRC.update(multi, Paths.get(fileName), FileCRC.DEFAULT_WINDOW_SIZE);
+			} catch (Exception e) {
+				err.println("ERROR: " + String.valueOf(e));
+				return;
+			}
+		} else {
+			try (InputStream is = (stdin ? System.in : new FileInputStream(fileName))) {
+				final byte[] buf = new byte[bufferSize];
+				while (true) {
+					final int len = is.read(buf, 0, buf.length);
+					if (len < 0) {
+						break;
+					} else if (len > 0) {
+						multi.update(buf, 0, len);
+						total += len;
+					}
+				}
+			} catch (Exception e) {
+				err.println("ERROR: " + String.valueOf(e));
+				return;
+			}
+		}
+		final long end = System.nanoTime();
+		for (final Preset ps : presets) {
+			out.println("crcName=" + ps.name() + " crc(hex)=" + Long.toHexString(multi.getValue(ps)));
+		}
+		printThroughput(total, end - begin);
+	}
+
+	private static void printThroughput(final long bytes, final long nanos) {
+		final double millis = Math.max(nanos, 1) / 1e6;
+		final double speed = (bytes / (1024d * 1024d)) / (millis / 1e3);
+		out.println(String.format(Locale.ROOT, "bytes=%d time=%.3fms speed=%.2fMB/s", bytes, millis, speed));
+	}
+
+	private static void computeIndex(final String crcName, //
+			final String fileName, final int blockSize, final boolean verify) {
+		final Preset ps;
+		try {
+			ps = Preset.valueOf(crcName);
+		} catch (Exception e) {
+			err.println("ERROR: " + crcName + " not found");
+			return;
+		}
+		final Path file = Paths.get(fileName);
+		final Path indexFile = BlockCRCIndex.sidecar(file);
+		out.println("Indexing crcName=" + crcName //
+				+ " inputFileName=" + fileName //
+				+ " indexFileName=" + indexFile);
+		final long begin = System.nanoTime();
+		final BlockCRCIndex index;
+		final String status;
+		long[] bad = null;
+		try {
+			if (Files.exists(indexFile)) {
+				index = BlockCRCIndex.load(ps.params, indexFile);
+				if (verify) {
+					bad = index.verify(file);
+					status = "verified";
+				} else {
+					status = (index.refresh(file, indexFile) ? "refreshed" : "unchanged");
+				}
+			} else if (verify) {
+				err.println("ERROR: index not found: " + indexFile);
+				System.exit(2);
+				return;
+			} else {
+				index = BlockCRCIndex.build(ps.params, file, blockSize);
+				index.save(indexFile);
+				status = "created";
+			}
+		} catch (Exception e) {
+			err.println("ERROR: " + String.valueOf(e));
+			System.exit(2);
+			return;
+		}
+		final long end = System.nanoTime();
+		out.println("status=" + status //
+				+ " blocks=" + index.getBlocks() //
+				+ " blockSize=" + index.getBlockSize());
+		out.println("crc(hex)=" + Long.toHexString(index.getValue()));
+		if (bad != null) {
+			for (final long block : bad) {
+				final long offset = (block * index.getBlockSize());
+				out.println("block=" + block + " offset=" + offset + ": FAILED");
+			}
+			out.println("checked=" + index.getBlocks() + " failed=" + bad.length);
+		}
+		printThroughput(index.getSize(), end - begin);
+		if ((bad != null) && (bad.length > 0)) {
+			System.exit(1);
+		}
+	}
+
+	private static void computeSum(final String crcNames, final String[] args, int argP) {
+		final String[] names = crcNames.split(",");
+		final Preset[] presets = new Preset[names.length];
+		for (int i = 0; i < names.length; i++) {
+			try {
+				presets[i] = Preset.valueOf(names[i]);
+			} catch (Exception e) {
+				err.println("ERROR: " + names[i] + " not found");
+				return;
+			}
+		}
+		int threads = Runtime.getRuntime().availableProcessors();
+		String check = null, output = null;
+		final List<String> inputs = new ArrayList<String>();
+		while (argP < args.length) {
+			final String opt = args[argP++];
+			switch (opt) {
+				case "--threads":
+				case "--check":
+				case "--output":
+					if (argP >= args.length) {
+						err.println("ERROR: not enough parameters");
+						return;
+					}
+					final String value = args[argP++];
+					if (opt.equals("--check")) {
+						check = value;
+					} else if (opt.equals("--output")) {
+						output = value;
+					} else {
+						try {
+							threads = Integer.parseInt(value);
+						} catch (Exception e) {
+							err.println("ERROR: " + String.valueOf(e));
+							return;
+						}
+						if (threads <= 0) {
+							err.println("ERROR: invalid threads " + value);
+							return;
+						}
+					}
 					break;
-				} else if (len > 0) {
-					crc.update(buf, 0, len);
+				default:
+					inputs.add(opt);
+					break;
+			}
+		}
+		if ((check == null) == inputs.isEmpty()) {
+			err.println("ERROR: " + ((check == null) ? "no input paths" : "--check does not allow input paths"));
+			usage();
+			return;
+		}
+		final CRCSum sum = new CRCSum(presets, threads);
+		final int errors;
+		try {
+			if (check != null) {
+				errors = sum.check(Paths.get(check), out);
+			} else if (output != null) {
+				try (PrintStream ps = new PrintStream(output, StandardCharsets.UTF_8.name())) {
+					errors = sum.write(inputs, ps);
 				}
+			} else {
+				errors = sum.write(inputs, out);
 			}
 		} catch (Exception e) {
 			err.println("ERROR: " + String.valueOf(e));
+			System.exit(2);
 			return;
 		}
-		out.println("crc(hex)=" + Long.toHexString(crc.getValue()));
+		if (errors > 0) {
+			System.exit(1);
+		}
+	}
+
+	private static void identify(final String fileName, final int width, final int threads) {
+		final List<byte[]> messages = new ArrayList<byte[]>();
+		final List<Long> crcs = new ArrayList<Long>();
+		try (BufferedReader in = new BufferedReader(new InputStreamReader(
+				(STDIN.equals(fileName) ? System.in : new FileInputStream(fileName)), StandardCharsets.US_ASCII))) {
+			String line;
+			while ((line = in.readLine()) != null) {
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				final String[] fields = line.split("\\s+");
+				if (fields.length != 2) {
+					throw new IllegalArgumentException("Invalid sample: " + line);
+				}
+				messages.add(Utils.fromHex(fields[0]));
+				crcs.add(Long.parseUnsignedLong(fields[1], 16));
+			}
+		} catch (Exception e) {
+			err.println("ERROR: " + String.valueOf(e));
+			System.exit(2);
+			return;
+		}
+		final long[] values = new long[crcs.size()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = crcs.get(i);
+		}
+		out.println("Identifying samples=" + values.length //
+				+ ((width > 0) ? " width=" + width : ""));
+		final long begin = System.nanoTime();
+		final ForkJoinPool pool = new ForkJoinPool(threads);
+		final List<Params> found = new ArrayList<Params>();
+		try {
+			for (final Preset ps : CRCIdentifier.identifyPresets(messages.toArray(new byte[0][]), values, pool)) {
+				if ((width == 0) || (ps.params.width == width)) {
+					out.println("preset=" + ps.name());
+					found.add(ps.params);
+				}
+			}
+			if (found.isEmpty() && (width > 0)) {
+				found.addAll(CRCIdentifier.search(width, messages.toArray(new byte[0][]), values, pool));
+				for (final Params p : found) {
+					out.println("width=" + p.width //
+							+ " poly=0x" + Long.toHexString(p.poly) //
+							+ " init=0x" + Long.toHexString(p.init) //
+							+ " refin=" + p.refin //
+							+ " refout=" + p.refout //
+							+ " xorout=0x" + Long.toHexString(p.xorout) //
+							+ " check=0x" + Long.toHexString(p.check) //
+							+ " name=" + p.name);
+				}
+			}
+		} catch (Exception e) {
+			err.println("ERROR: " + String.valueOf(e));
+			System.exit(2);
+			return;
+		} finally {
+			pool.shutdown();
+		}
+		final long end = System.nanoTime();
+		out.println(String.format(Locale.ROOT, "found=%d time=%.3fms", found.size(), (end - begin) / 1e6));
+		if (found.isEmpty()) {
+			if (width == 0) {
+				out.println("use --width <BITS> to search params");
+			}
+			System.exit(1);
+		}
 	}
 
 	private static void computeString(final String crcName, //
@@ -127,9 +449,151 @@ public class CommandLine {
 					usage();
 					return;
 				}
-				final String crcName = args[argP++], //
-						fileName = args[argP++];
-				computeFile(crcName, fileName);
+				final String crcName = args[argP++];
+				Preset[] presets = null;
+				if (crcName.equals("--all")) {
+					presets = Preset.values();
+				} else if (crcName.equals("--presets")) {
+					final String[] names = args[argP++].split(",");
+					presets = new Preset[names.length];
+					for (int i = 0; i < names.length; i++) {
+						try {
+							presets[i] = Preset.valueOf(names[i]);
+						} catch (Exception e) {
+							err.println("ERROR: " + names[i] + " not found");
+							return;
+						}
+					}
+				}
+				boolean mmap = false;
+				boolean async = false;
+				int bufferSize = DEFAULT_BUFFER_SIZE;
+				while (argP < args.length - 1) {
+					final String opt = args[argP++];
+					switch (opt) {
+						case "--mmap":
+							mmap = true;
+							break;
+						case "--async":
+							async = true;
+							break;
+						case "--buffer-size":
+							if (argP >= args.length - 1) {
+								err.println("ERROR: not enough parameters");
+								return;
+							}
+							try {
+								bufferSize = Utils.parseSize(args[argP++]);
+							} catch (Exception e) {
+								err.println("ERROR: " + String.valueOf(e));
+								return;
+							}
+							break;
+						default:
+							err.println("ERROR: " + opt + " unknown");
+							return;
+					}
+				}
+				if (argP >= args.length) {
+					err.println("ERROR: not enough parameters");
+					usage();
+					return;
+				}
+				final String fileName = args[argP++];
+				if (presets != null) {
+					computeFileMulti(presets, fileName, mmap, async, bufferSize);
+				} else {
+					computeFile(crcName, fileName, mmap, async, bufferSize);
+				}
+				break;
+			}
+			case "index": {
+				if (args.length < 3) {
+					err.println("ERROR: not enough parameters");
+					usage();
+					return;
+				}
+				final String crcName = args[argP++];
+				boolean verify = false;
+				int blockSize = BlockCRCIndex.DEFAULT_BLOCK_SIZE;
+				while (argP < args.length - 1) {
+					final String opt = args[argP++];
+					switch (opt) {
+						case "--verify":
+							verify = true;
+							break;
+						case "--block-size":
+							if (argP >= args.length - 1) {
+								err.println("ERROR: not enough parameters");
+								return;
+							}
+							try {
+								blockSize = Utils.parseSize(args[argP++]);
+							} catch (Exception e) {
+								err.println("ERROR: " + String.valueOf(e));
+								return;
+							}
+							break;
+						default:
+							err.println("ERROR: " + opt + " unknown");
+							return;
+					}
+				}
+				final String fileName = args[argP++];
+				computeIndex(crcName, fileName, blockSize, verify);
+				break;
+			}
+			case "sum": {
+				if (args.length < 3) {
+					err.println("ERROR: not enough parameters");
+					usage();
+					return;
+				}
+				final String crcNames = args[argP++];
+				computeSum(crcNames, args, argP);
+				break;
+			}
+			case "identify": {
+				if (args.length < 2) {
+					err.println("ERROR: not enough parameters");
+					usage();
+					return;
+				}
+				int width = 0;
+				int threads = Runtime.getRuntime().availableProcessors();
+				while (argP < args.length - 1) {
+					final String opt = args[argP++];
+					switch (opt) {
+						case "--width":
+						case "--threads":
+							if (argP >= args.length - 1) {
+								err.println("ERROR: not enough parameters");
+								return;
+							}
+							final int value;
+							try {
+								value = Integer.parseInt(args[argP++]);
+							} catch (Exception e) {
+								err.println("ERROR: " + String.valueOf(e));
+								return;
+							}
+							if ((value <= 0) || (opt.equals("--width") && (value > 64))) {
+								err.println("ERROR: invalid " + opt + " " + value);
+								return;
+							}
+							if (opt.equals("--width")) {
+								width = value;
+							} else {
+								threads = value;
+							}
+							break;
+						default:
+							err.println("ERROR: " + opt + " unknown");
+							return;
+					}
+				}
+				final String fileName = args[argP++];
+				identify(fileName, width, threads);
 				break;
 			}
 			case "search": {
@@ -1,6 +1,34 @@
 package org.javastack.crc.cli;
 
 public class Utils {
+	/**
+	 * Parse a size with optional suffix (K, M, G), like 4096, 64K or 1M
+	 * 
+	 * @param size to parse
+	 * @return size in bytes
+	 * @throws NumberFormatException if invalid size
+	 */
+	static final int parseSize(final String size) throws NumberFormatException {
+		final String s = size.trim().toUpperCase();
+		long mult = 1;
+		int end = s.length();
+		if (s.endsWith("K")) {
+			mult = 1L << 10;
+			end--;
+		} else if (s.endsWith("M")) {
+			mult = 1L << 20;
+			end--;
+		} else if (s.endsWith("G")) {
+			mult = 1L << 30;
+			end--;
+		}
+		final long value = Long.parseLong(s.substring(0, end)) * mult;
+		if ((value <= 0) || (value > Integer.MAX_VALUE - 8)) {
+			throw new NumberFormatException("Invalid size: " + size);
+		}
+		return (int) value;
+	}
+
 	// Original Source:
 	// https://github.com/ggrandes/packer/blob/master/src/main/java/org/javastack/packer/Packer.java
 	// org.javastack.packer.Packer#fromHex(String)
@@ -2,6 +2,7 @@ package org.javastack.crc.example;
 
 import org.javastack.crc.CRC;
 import org.javastack.crc.CRC32C;
+import org.javastack.crc.Engine;
 import org.javastack.crc.GenericCalculateCRC;
 import org.javastack.crc.Params;
 import org.javastack.crc.Preset;
@@ -22,6 +23,15 @@ public class HelloWorld {
 		crc.update(CRC.TEST_VALUE.getBytes());
 		System.out.println("6c40df5f0b497347=" + Long.toHexString(crc.getValue()));
 
+		// Using a Preset with a specific Engine
+		crc = Preset.CRC_32_ISCSI.getInstance(Engine.SLICING_8); // use Slicing-by-8 tables
+		crc.reset();
+		crc.update(CRC.TEST_VALUE.getBytes());
+		System.out.println("e3069283=" + Long.toHexString(crc.getValue()));
+
+		// Using a Preset with the reusable instance of current thread (no allocation)
+		System.out.println("e3069283=" + Long.toHexString(Preset.CRC_32_ISCSI.checksum(CRC.TEST_VALUE.getBytes())));
+
 		// Using Custom Algorithm/Params
 		Params custom = new Params("CRC-32/SATA", 32, // name, bits
 				0x04c11db7, 0xcf72afe8, 0x52325032, // poly, check, init
@@ -0,0 +1,40 @@
+package org.javastack.crc;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+
+/**
+ * Access to JDK intrinsic checksums (JIT uses hardware instructions).
+ * <p>
+ * This is the Java 9+ version (in META-INF/versions/9 of multi-release JAR).
+ */
+final class Intrinsics {
+	/**
+	 * Return a new JDK CRC-32/ISO-HDLC
+	 * 
+	 * @return checksum
+	 */
+	static java.util.zip.Checksum newCRC32() {
+		return new CRC32();
+	}
+
+	/**
+	 * Return a new JDK CRC-32/ISCSI (CRC32C)
+	 * 
+	 * @return checksum
+	 */
+	static java.util.zip.Checksum newCRC32C() {
+		return new CRC32C();
+	}
+
+	/**
+	 * Updates the checksum with the bytes from the buffer
+	 * 
+	 * @param checksum to update
+	 * @param buffer input, position is advanced to limit
+	 */
+	static void update(final java.util.zip.Checksum checksum, final ByteBuffer buffer) {
+		checksum.update(buffer);
+	}
+}